@@ -7,6 +7,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 import java.util.Map;
@@ -21,9 +23,11 @@ public class EventBackpressureDispatcherController {
         this.sourceService = sourceService;
     }
 
+    // Redis and policy server calls are blocking: kept off the event loop (on virtual threads with the "java21" profile)
     @GetMapping("/event")
     @ResponseBody
-    public List<Map<String, Object>> readEvents(@RequestParam String consumer, @RequestParam int count) {
-        return sourceService.read("my-stream", count, consumer);
+    public Mono<List<Map<String, Object>>> readEvents(@RequestParam String consumer, @RequestParam int count) {
+        return Mono.fromCallable(() -> sourceService.read("my-stream", count, consumer))
+                .subscribeOn(Schedulers.boundedElastic());
     }
 }
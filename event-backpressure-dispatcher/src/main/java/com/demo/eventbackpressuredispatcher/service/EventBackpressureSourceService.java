@@ -9,12 +9,15 @@ import com.demo.eventbackpressuredispatcher.service.user.EventUserInfoService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 public class EventBackpressureSourceService {
@@ -24,23 +27,33 @@ public class EventBackpressureSourceService {
     private final EventRedisSourceService sourceService;
     private final EventPolicyCheckerService policyCheckerService;
     private final EventUserInfoService userInfoService;
+    private final AsyncTaskExecutor applicationTaskExecutor;
 
     @Autowired
     public EventBackpressureSourceService(EventRedisSourceService sourceService,
                                           EventPolicyCheckerService policyCheckerService,
-                                          EventUserInfoService userInfoService) {
+                                          EventUserInfoService userInfoService,
+                                          AsyncTaskExecutor applicationTaskExecutor) {
         this.sourceService = sourceService;
         this.policyCheckerService = policyCheckerService;
         this.userInfoService = userInfoService;
+        this.applicationTaskExecutor = applicationTaskExecutor;
     }
 
     public List<Map<String, Object>> read(String source, int count, String consumerName) {
         LOGGER.info("Reading source {}: {} asks for {} messages", source, consumerName, count);
         List<EventData> read = sourceService.read(source, count, consumerName);
         LOGGER.info("Source {}: {} messages read for {}", source, read.size(), consumerName);
-        List<Map<String, Object>> filtered = read.stream()
+        // Policy checks are blocking calls to the policy server: they run concurrently on the application task executor
+        List<CompletableFuture<Optional<EventData>>> checks = read.stream()
                 .filter(event -> !Objects.isNull(event.payload())) // DLQ for invalid events ?
-                .filter(event -> applyPolicy(source, consumerName, event))
+                .map(event -> CompletableFuture.supplyAsync(
+                        () -> applyPolicy(source, consumerName, event) ? Optional.of(event) : Optional.<EventData>empty(),
+                        applicationTaskExecutor))
+                .toList();
+        List<Map<String, Object>> filtered = checks.stream()
+                .map(CompletableFuture::join)
+                .flatMap(Optional::stream)
                 .sorted(Comparator.comparing(EventData::id))
                 .map(EventData::payload)
                 .toList();
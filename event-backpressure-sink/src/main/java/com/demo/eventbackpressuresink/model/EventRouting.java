@@ -1,3 +1,3 @@
 package com.demo.eventbackpressuresink.model;
 
-public record EventRouting(String source, String sink) {}
+public record EventRouting(String source, String sink, EventSinkRetention retention) {}
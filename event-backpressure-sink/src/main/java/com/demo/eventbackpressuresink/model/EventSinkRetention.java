@@ -0,0 +1,7 @@
+package com.demo.eventbackpressuresink.model;
+
+import java.time.Duration;
+
+// Retention of a sink stream, each limit being optional:
+// "maxLength" (approximate), "maxAge" of the entries, "trimAcknowledged" to drop the entries acknowledged by all groups
+public record EventSinkRetention(Long maxLength, Duration maxAge, boolean trimAcknowledged) {}
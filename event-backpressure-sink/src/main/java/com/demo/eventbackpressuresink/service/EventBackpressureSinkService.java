@@ -1,76 +1,75 @@
 package com.demo.eventbackpressuresink.service;
 
-import com.demo.eventbackpressuresink.configuration.EventBackpressureSinkConfiguration;
 import com.demo.eventbackpressuresink.configuration.EventBackpressureSinkRoutingConfiguration;
 import com.demo.eventbackpressuresink.model.EventRouting;
+import com.demo.eventbackpressuresink.service.factory.KafkaConsumerFactory;
 import com.demo.eventbackpressuresink.service.redis.EventRedisSinkService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.demo.eventconsumerruntime.EventConsumerRuntime;
+import com.demo.eventconsumerruntime.EventConsumerRuntimeSettings;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.apache.avro.generic.GenericRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
 import java.time.Duration;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
 public class EventBackpressureSinkService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventBackpressureSinkService.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final EventRedisSinkService sinkService;
+    private final Map<String, String> routingMap;
+    private final EventConsumerRuntime<String, GenericRecord> consumerRuntime;
 
     @Autowired
-    public EventBackpressureSinkService(EventBackpressureSinkConfiguration configuration,
+    public EventBackpressureSinkService(KafkaConsumerFactory kafkaConsumerFactory,
                                         EventBackpressureSinkRoutingConfiguration routingConfiguration,
-                                        EventRedisSinkService sinkService) {
-        Thread consumerThread = new Thread(
-                () -> consumeEvents(configuration.buildKafkaConsumer(), routingConfiguration.getRouting(), sinkService),
-                "kafka-consumer-thread"
-        );
-        consumerThread.setDaemon(true);
-        consumerThread.start();
+                                        EventRedisSinkService sinkService,
+                                        MeterRegistry meterRegistry,
+                                        AsyncTaskExecutor applicationTaskExecutor,
+                                        @Value("${consumer.threads}") int consumerThreads,
+                                        @Value("${consumer.lanes-per-thread}") int lanesPerThread,
+                                        @Value("${consumer.lane-ordering}") EventConsumerRuntimeSettings.LaneOrdering laneOrdering,
+                                        @Value("${consumer.poll-timeout}") Duration pollTimeout,
+                                        @Value("${consumer.commit-interval}") Duration commitInterval,
+                                        @Value("${consumer.max-pending-per-partition}") int maxPendingPerPartition,
+                                        @Value("${consumer.retry-backoff}") Duration retryBackoff,
+                                        @Value("${consumer.max-retry-backoff}") Duration maxRetryBackoff,
+                                        @Value("${consumer.shutdown-timeout}") Duration shutdownTimeout) {
+        this.sinkService = sinkService;
+        this.routingMap = routingConfiguration.getRouting().stream().collect(Collectors.toMap(EventRouting::source, EventRouting::sink));
+        EventConsumerRuntimeSettings settings = new EventConsumerRuntimeSettings("event-backpressure-sink", consumerThreads,
+                lanesPerThread, laneOrdering, pollTimeout, commitInterval, maxPendingPerPartition,
+                retryBackoff, maxRetryBackoff, shutdownTimeout);
+        this.consumerRuntime = new EventConsumerRuntime<>(settings, kafkaConsumerFactory::buildKafkaConsumer, this::processRecord,
+                applicationTaskExecutor, meterRegistry);
+        consumerRuntime.start(routingMap.keySet());
     }
 
-    // PRIVATE METHODS
-
-    private void consumeEvents(KafkaConsumer<String, GenericRecord> kafkaConsumer,
-                               List<EventRouting> routingList,
-                               EventRedisSinkService sinkService) {
-        while (true) {
-            try {
-                Map<String, String> routingMap = routingList.stream().collect(Collectors.toMap(EventRouting::source, EventRouting::sink));
-                List<String> topics = routingMap.keySet().stream().toList();
-                LOGGER.info("Topics to listen: {}", topics);
-                kafkaConsumer.subscribe(topics);
-                while (true) {
-                    ConsumerRecords<String, GenericRecord> records = kafkaConsumer.poll(Duration.ofMillis(100));
-                    processRecords(records, routingMap, sinkService);
-                    kafkaConsumer.commitSync();
-                }
-            } catch (Exception e) {
-                LOGGER.error("Error occurred while consuming events", e);
-                try {
-                    Thread.sleep(5000);
-                } catch (Exception ignored) {
-                }
-            }
-        }
+    @PreDestroy
+    public void shutdown() {
+        consumerRuntime.close();
     }
 
-    private void processRecords(ConsumerRecords<String, GenericRecord> records, Map<String, String> routingMap, EventRedisSinkService sinkService) throws IOException {
-        for (ConsumerRecord<String, GenericRecord> record : records) {
-            String sinkName = routingMap.get(record.topic());
-            LOGGER.info("Dispatch event offset = {}, key = {}, value = {} to sink '{}'", record.offset(), record.key(), record.value(), sinkName);
-            String payload = record.value().toString();
-            String id = sinkService.send(sinkName, payload);
-            LOGGER.info("Event dispatched to sink '{}': {}", sinkName, id);
-        }
+    // PRIVATE METHODS
+
+    // The offset is committed once the batch holding the event is in the sink. An event failing to reach the sink
+    // fails the record: the consumer runtime rewinds its partition to it and sends it again after a backoff.
+    private CompletableFuture<Void> processRecord(ConsumerRecord<String, GenericRecord> record) {
+        String sinkName = routingMap.get(record.topic());
+        LOGGER.info("Dispatch event offset = {}, key = {}, value = {} to sink '{}'", record.offset(), record.key(), record.value(), sinkName);
+        String payload = record.value().toString();
+        return sinkService.send(sinkName, payload)
+                .thenAccept(id -> LOGGER.info("Event dispatched to sink '{}': {}", sinkName, id));
     }
 }
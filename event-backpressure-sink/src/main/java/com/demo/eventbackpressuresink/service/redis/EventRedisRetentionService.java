@@ -0,0 +1,148 @@
+package com.demo.eventbackpressuresink.service.redis;
+
+import com.demo.eventbackpressuresink.configuration.EventBackpressureSinkRoutingConfiguration;
+import com.demo.eventbackpressuresink.model.EventRouting;
+import com.demo.eventbackpressuresink.model.EventSinkRetention;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Background trimmer of the sink streams, every "trim-interval", following the retention of their route (XTRIM with
+// approximate trimming: Redis only drops whole nodes of the stream, which is much cheaper than exact trimming).
+// Stream length and memory are exposed as "event.sink.stream.length" and "event.sink.stream.memory".
+@Service
+public class EventRedisRetentionService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventRedisRetentionService.class);
+    private static final Comparator<RecordId> RECORD_ID_ORDER = Comparator.comparingLong(RecordId::getTimestamp)
+            .thenComparingLong(RecordId::getSequence);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final List<EventRouting> routing;
+    private final Map<String, AtomicLong> streamLengths;
+    private final Map<String, AtomicLong> streamMemories;
+    private final ScheduledExecutorService trimmer;
+
+    @Autowired
+    public EventRedisRetentionService(RedisTemplate<String, String> redisTemplate,
+                                      EventBackpressureSinkRoutingConfiguration routingConfiguration,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${redis.sink.trim-interval}") Duration trimInterval) {
+        this.redisTemplate = redisTemplate;
+        this.routing = routingConfiguration.getRouting();
+        this.streamLengths = new ConcurrentHashMap<>();
+        this.streamMemories = new ConcurrentHashMap<>();
+        for (EventRouting route : routing) {
+            // Refreshed by the trimmer: metric scrapes do not hit Redis
+            Gauge.builder("event.sink.stream.length", streamLengths.computeIfAbsent(route.sink(), sink -> new AtomicLong()), AtomicLong::get)
+                    .tag("stream", route.sink())
+                    .register(meterRegistry);
+            Gauge.builder("event.sink.stream.memory", streamMemories.computeIfAbsent(route.sink(), sink -> new AtomicLong()), AtomicLong::get)
+                    .tag("stream", route.sink())
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+        this.trimmer = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "event-redis-trimmer"));
+        trimmer.scheduleWithFixedDelay(this::trimStreams, trimInterval.toMillis(), trimInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        trimmer.shutdownNow();
+    }
+
+    // PRIVATE METHODS
+
+    private void trimStreams() {
+        for (EventRouting route : routing) {
+            try {
+                if (Boolean.TRUE.equals(redisTemplate.hasKey(route.sink()))) {
+                    if (route.retention() != null) {
+                        trimStream(route.sink(), route.retention());
+                    }
+                    updateMetrics(route.sink());
+                }
+            } catch (Exception e) {
+                LOGGER.error("Error while trimming sink stream '{}'", route.sink(), e);
+            }
+        }
+    }
+
+    // Each limit trims on its own: an entry is kept only if none of them drops it
+    private void trimStream(String sink, EventSinkRetention retention) {
+        if (retention.maxLength() != null) {
+            Long trimmed = redisTemplate.opsForStream().trim(sink, retention.maxLength(), true);
+            LOGGER.debug("Sink stream '{}' trimmed by length: {} entries", sink, trimmed);
+        }
+        if (retention.maxAge() != null) {
+            // Stream IDs start with the insertion time in milliseconds
+            long minTimestamp = System.currentTimeMillis() - retention.maxAge().toMillis();
+            trimByMinId(sink, RecordId.of(minTimestamp, 0));
+        }
+        if (retention.trimAcknowledged()) {
+            RecordId minUnacknowledgedId = findMinUnacknowledgedId(sink);
+            if (minUnacknowledgedId != null) {
+                trimByMinId(sink, minUnacknowledgedId);
+            }
+        }
+    }
+
+    // Lowest ID that one of the groups still needs: its oldest pending entry, or its last delivered one (kept, as a
+    // MINID trim keeps the given ID). No group: nothing is acknowledged yet.
+    private RecordId findMinUnacknowledgedId(String sink) {
+        RecordId minId = null;
+        for (StreamInfo.XInfoGroup group : redisTemplate.opsForStream().groups(sink).stream().toList()) {
+            RecordId groupMinId;
+            if (group.pendingCount() > 0) {
+                PendingMessagesSummary pending = redisTemplate.opsForStream().pending(sink, group.groupName());
+                groupMinId = RecordId.of(pending.minMessageId());
+            } else {
+                groupMinId = RecordId.of(group.lastDeliveredId());
+            }
+            if (minId == null || RECORD_ID_ORDER.compare(groupMinId, minId) < 0) {
+                minId = groupMinId;
+            }
+        }
+        return minId;
+    }
+
+    // XTRIM MINID is not exposed by the stream operations
+    private void trimByMinId(String sink, RecordId minId) {
+        Object trimmed = redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("XTRIM",
+                toBytes(sink), toBytes("MINID"), toBytes("~"), toBytes(minId.getValue())));
+        LOGGER.debug("Sink stream '{}' trimmed before '{}': {} entries", sink, minId, trimmed);
+    }
+
+    private void updateMetrics(String sink) {
+        Long length = redisTemplate.opsForStream().size(sink);
+        streamLengths.get(sink).set(length != null ? length : 0);
+        Object memory = redisTemplate.execute((RedisCallback<Object>) connection -> connection.execute("MEMORY",
+                toBytes("USAGE"), toBytes(sink)));
+        streamMemories.get(sink).set(memory instanceof Long bytes ? bytes : 0);
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
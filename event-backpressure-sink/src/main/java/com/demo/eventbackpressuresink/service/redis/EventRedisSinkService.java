@@ -1,37 +1,195 @@
 package com.demo.eventbackpressuresink.service.redis;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisPipelineException;
 import org.springframework.data.redis.connection.stream.ObjectRecord;
 import org.springframework.data.redis.connection.stream.RecordId;
 import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.util.Objects;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+// Events are sent in batches: the XADD of a batch are pipelined in a single round trip, and the future of each event
+// completes with its own XADD result. A batch is sent once "max-batch-size" events are waiting, or "max-linger" after
+// its first event, and never holds more than "max-batch-size" events (the ones left waiting go in the next batch).
+// Batches are sent one after the other, keeping the order of the events of a stream.
+// A pipeline failing as a whole (connection lost, timeout: no result, or only errors) is sent again up to "max-retries"
+// times, after "retry-backoff" doubled on each attempt, before failing its events. When only some XADD failed, their
+// events fail right away and the other ones complete.
 @Service
 public class EventRedisSinkService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventRedisSinkService.class);
+
     private final RedisTemplate<String, String> redisTemplate;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final int maxRetries;
+    private final Duration retryBackoff;
+    private final ScheduledExecutorService batchSender;
+    private final DistributionSummary batchSizes;
+    private List<PendingEvent> pendingEvents;
 
     @Autowired
-    public EventRedisSinkService(RedisTemplate<String, String> redisTemplate) {
+    public EventRedisSinkService(RedisTemplate<String, String> redisTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${redis.sink.max-batch-size}") int maxBatchSize,
+                                 @Value("${redis.sink.max-linger}") Duration maxLinger,
+                                 @Value("${redis.sink.max-retries}") int maxRetries,
+                                 @Value("${redis.sink.retry-backoff}") Duration retryBackoff) {
         this.redisTemplate = redisTemplate;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.maxRetries = maxRetries;
+        this.retryBackoff = retryBackoff;
+        this.batchSender = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "event-redis-sink"));
+        this.batchSizes = DistributionSummary.builder("event.sink.batch.size")
+                .description("Events sent in a single Redis pipeline")
+                .register(meterRegistry);
+        this.pendingEvents = new ArrayList<>(maxBatchSize);
     }
 
-    public String send(String sink, String payload) throws IOException {
+    public CompletableFuture<String> send(String sink, String payload) {
         ObjectRecord<String, String> record = StreamRecords.newRecord()
                 .ofObject(payload)
                 .withStreamKey(sink);
+        PendingEvent pendingEvent = new PendingEvent(record, new CompletableFuture<>());
+        synchronized (this) {
+            pendingEvents.add(pendingEvent);
+            if (pendingEvents.size() == 1) {
+                batchSender.schedule(this::sendPendingEvents, maxLingerNanos, TimeUnit.NANOSECONDS);
+            } else if (pendingEvents.size() == maxBatchSize) {
+                batchSender.execute(this::sendPendingEvents);
+            }
+        }
+        return pendingEvent.recordId();
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        batchSender.execute(() -> {
+            while (hasPendingEvents()) {
+                sendPendingEvents();
+            }
+        });
+        batchSender.shutdown();
+        batchSender.awaitTermination(10, TimeUnit.SECONDS);
+    }
 
-        RecordId recordId = this.redisTemplate.opsForStream().add(record);
+    // PRIVATE METHODS
 
-        if (Objects.isNull(recordId)) {
-            throw new IOException("Error while sending event to Redis Streams sink");
+    private void sendPendingEvents() {
+        List<PendingEvent> batch = takeBatch();
+        if (batch.isEmpty()) {
+            return; // Already sent by the size trigger
         }
+        batchSizes.record(batch.size());
+        List<Object> results;
+        try {
+            results = sendBatch(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            batch.forEach(pendingEvent -> pendingEvent.recordId().completeExceptionally(e));
+            return;
+        } catch (Exception e) {
+            LOGGER.error("Error while sending {} events to Redis Streams sink", batch.size(), e);
+            batch.forEach(pendingEvent -> pendingEvent.recordId().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Object result = i < results.size() ? results.get(i) : null;
+            if (result instanceof RecordId recordId) {
+                batch.get(i).recordId().complete(recordId.toString());
+            } else if (result instanceof Throwable e) {
+                batch.get(i).recordId().completeExceptionally(e);
+            } else {
+                batch.get(i).recordId().completeExceptionally(new IOException("Error while sending event to Redis Streams sink"));
+            }
+        }
+    }
 
-        return recordId.toString();
+    private synchronized boolean hasPendingEvents() {
+        return !pendingEvents.isEmpty();
     }
 
+    // At most "maxBatchSize" events: the ones left are sent right after, as they already waited for this batch
+    private synchronized List<PendingEvent> takeBatch() {
+        List<PendingEvent> batch;
+        if (pendingEvents.size() <= maxBatchSize) {
+            batch = pendingEvents;
+            pendingEvents = new ArrayList<>(maxBatchSize);
+        } else {
+            List<PendingEvent> head = pendingEvents.subList(0, maxBatchSize);
+            batch = new ArrayList<>(head);
+            head.clear();
+            try {
+                batchSender.execute(this::sendPendingEvents);
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Sink closing / {} events left to the final flush", pendingEvents.size());
+            }
+        }
+        return batch;
+    }
+
+    // The sender thread waits during the backoff: the next batches are not sent before this one, keeping the order
+    private List<Object> sendBatch(List<PendingEvent> batch) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            RuntimeException failure;
+            try {
+                return executePipeline(batch);
+            } catch (RedisPipelineException e) {
+                // Failed XADD are given as exceptions: if some went through, only the failed ones are given up
+                if (!isWholePipelineFailure(e.getPipelineResult(), batch.size())) {
+                    return e.getPipelineResult();
+                }
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            if (attempt >= maxRetries) {
+                throw failure;
+            }
+            Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempt, 20));
+            LOGGER.warn("Error while sending {} events to Redis Streams sink / Retrying in {}: {}", batch.size(), backoff, failure.getMessage());
+            Thread.sleep(backoff.toMillis());
+        }
+    }
+
+    private List<Object> executePipeline(List<PendingEvent> batch) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, String> streamOperations = (RedisOperations<String, String>) operations;
+                batch.forEach(pendingEvent -> streamOperations.opsForStream().add(pendingEvent.record()));
+                return null;
+            }
+        });
+    }
+
+    // Timeouts come without any result, and a lost connection fails every command of the pipeline
+    private static boolean isWholePipelineFailure(List<Object> results, int batchSize) {
+        return results.size() < batchSize || results.stream().allMatch(result -> result instanceof Throwable);
+    }
+
+    // PRIVATE CLASSES
+
+    private record PendingEvent(ObjectRecord<String, String> record, CompletableFuture<String> recordId) {}
 }
@@ -0,0 +1,168 @@
+package com.demo.eventbackpressuresink.service.redis;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.stream.Record;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StreamOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EventRedisSinkServiceTests {
+
+	private static final int MAX_BATCH_SIZE = 2;
+	private static final int MAX_RETRIES = 2;
+
+	@SuppressWarnings("unchecked")
+	private final RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+	private final List<Integer> pipelineSizes = Collections.synchronizedList(new ArrayList<>());
+	private final EventRedisSinkService sinkService = new EventRedisSinkService(redisTemplate, new SimpleMeterRegistry(),
+			MAX_BATCH_SIZE, Duration.ofMillis(50), MAX_RETRIES, Duration.ofMillis(1));
+
+	@AfterEach
+	void close() throws InterruptedException {
+		sinkService.close();
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void boundsBatchesToMaxSize() throws Exception {
+		CountDownLatch firstPipelineSent = new CountDownLatch(1);
+		CountDownLatch releaseFirstPipeline = new CountDownLatch(1);
+		when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(pipeline(size -> {
+			if (pipelineSizes.size() == 1) {
+				firstPipelineSent.countDown();
+				await(releaseFirstPipeline);
+			}
+			return recordIds(size);
+		}));
+
+		List<CompletableFuture<String>> recordIds = new ArrayList<>();
+		recordIds.add(sinkService.send("stream", "event-0"));
+		assertThat(firstPipelineSent.await(5, TimeUnit.SECONDS)).isTrue();
+		// Piled up while the sender is busy with the first pipeline
+		for (int i = 1; i < 6; i++) {
+			recordIds.add(sinkService.send("stream", "event-" + i));
+		}
+		releaseFirstPipeline.countDown();
+
+		for (CompletableFuture<String> recordId : recordIds) {
+			assertThat(recordId.get(5, TimeUnit.SECONDS)).isNotNull();
+		}
+		assertThat(pipelineSizes).allMatch(size -> size <= MAX_BATCH_SIZE);
+		assertThat(pipelineSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(6);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void failsOnlyFailedEventsOfPipeline() throws Exception {
+		RedisSystemException xaddError = new RedisSystemException("WRONGTYPE", null);
+		when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(pipeline(size -> {
+			throw new RedisPipelineException(xaddError, List.of(RecordId.of("1-0"), xaddError));
+		}));
+
+		CompletableFuture<String> sent = sinkService.send("stream", "event-0");
+		CompletableFuture<String> failed = sinkService.send("stream", "event-1");
+
+		assertThat(sent.get(5, TimeUnit.SECONDS)).isEqualTo(RecordId.of("1-0").toString());
+		assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCause(xaddError);
+		assertThat(pipelineSizes).containsExactly(2);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void retriesWholePipelineFailure() throws Exception {
+		when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(pipeline(size -> {
+			if (pipelineSizes.size() == 1) {
+				throw new RedisPipelineException(new QueryTimeoutException("Command timed out"), List.of());
+			}
+			return recordIds(size);
+		}));
+
+		CompletableFuture<String> first = sinkService.send("stream", "event-0");
+		CompletableFuture<String> second = sinkService.send("stream", "event-1");
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+		assertThat(second.get(5, TimeUnit.SECONDS)).isNotNull();
+		assertThat(pipelineSizes).containsExactly(2, 2);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void failsEventsWithPipelineErrorOnceRetriesExhausted() {
+		RedisPipelineException connectionLost = new RedisPipelineException(new QueryTimeoutException("Connection lost"), List.of());
+		when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(pipeline(size -> {
+			throw connectionLost;
+		}));
+
+		CompletableFuture<String> recordId = sinkService.send("stream", "event-0");
+
+		assertThatThrownBy(() -> recordId.get(5, TimeUnit.SECONDS))
+				.isInstanceOf(ExecutionException.class)
+				.hasCause(connectionLost);
+		assertThat(pipelineSizes).hasSize(MAX_RETRIES + 1);
+	}
+
+	// PRIVATE METHODS
+
+	// Runs the session callback to know the number of XADD in the pipeline, then answers with the given results
+	@SuppressWarnings("unchecked")
+	private Answer<List<Object>> pipeline(IntFunction<List<Object>> results) {
+		return invocation -> {
+			AtomicInteger added = new AtomicInteger();
+			StreamOperations<String, Object, Object> streamOperations = mock(StreamOperations.class);
+			when(streamOperations.add(any(Record.class))).thenAnswer(add -> {
+				added.incrementAndGet();
+				return null;
+			});
+			RedisOperations<String, String> operations = mock(RedisOperations.class);
+			doReturn(streamOperations).when(operations).opsForStream();
+			SessionCallback<Object> callback = invocation.getArgument(0);
+			callback.execute(operations);
+			pipelineSizes.add(added.get());
+			return results.apply(added.get());
+		};
+	}
+
+	private static List<Object> recordIds(int size) {
+		List<Object> recordIds = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			recordIds.add(RecordId.of(i + 1, 0));
+		}
+		return recordIds;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
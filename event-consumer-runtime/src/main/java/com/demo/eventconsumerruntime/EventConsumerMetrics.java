@@ -0,0 +1,48 @@
+package com.demo.eventconsumerruntime;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Meters of a consumer runtime, shared by its consumer threads and tagged with the runtime name
+class EventConsumerMetrics {
+
+    private final Counter rebalanceCounter;
+    private final Timer rebalancePauseTimer;
+    private final Counter failureCounter;
+    private final Counter retryCounter;
+    private final AtomicInteger pending;
+
+    EventConsumerMetrics(String runtimeName, MeterRegistry meterRegistry) {
+        this.rebalanceCounter = Counter.builder("event.consumer.rebalances").tag("runtime", runtimeName).register(meterRegistry);
+        // Time during which some partitions are not consumed because of a subscription change or a rebalance
+        this.rebalancePauseTimer = Timer.builder("event.consumer.rebalance.pause").tag("runtime", runtimeName).register(meterRegistry);
+        this.failureCounter = Counter.builder("event.consumer.failures").tag("runtime", runtimeName).register(meterRegistry);
+        this.retryCounter = Counter.builder("event.consumer.retries").tag("runtime", runtimeName).register(meterRegistry);
+        this.pending = new AtomicInteger();
+        Gauge.builder("event.consumer.pending", pending, AtomicInteger::get).tag("runtime", runtimeName).register(meterRegistry);
+    }
+
+    void rebalanced(long pauseNanos) {
+        rebalanceCounter.increment();
+        if (pauseNanos > 0) {
+            rebalancePauseTimer.record(pauseNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void failed() {
+        failureCounter.increment();
+    }
+
+    void retried() {
+        retryCounter.increment();
+    }
+
+    void pendingChanged(int delta) {
+        pending.addAndGet(delta);
+    }
+}
@@ -0,0 +1,80 @@
+package com.demo.eventconsumerruntime;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+// Runs the Kafka consumption of a module: the subscribed topics can be changed at any time, the handling of the
+// records can be spread over several threads, and offsets are only committed once their record has been handled.
+// Lanes run on "laneExecutor", typically the application task executor (virtual threads when enabled).
+public class EventConsumerRuntime<K, V> implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventConsumerRuntime.class);
+    private static final long CLOSE_MARGIN_MS = 5000; // Commit and close of the consumers after the pending records wait
+
+    private final EventConsumerRuntimeSettings settings;
+    private final List<EventConsumerWorker<K, V>> workers;
+    private final List<Thread> threads;
+    private volatile Set<String> topics;
+
+    public EventConsumerRuntime(EventConsumerRuntimeSettings settings,
+                                Supplier<KafkaConsumer<K, V>> consumerFactory,
+                                EventRecordHandler<K, V> handler,
+                                Executor laneExecutor,
+                                MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.workers = new ArrayList<>();
+        this.threads = new ArrayList<>();
+        this.topics = Set.of();
+        EventConsumerMetrics metrics = new EventConsumerMetrics(settings.name(), meterRegistry);
+        for (int i = 0; i < settings.consumerThreads(); i++) {
+            workers.add(new EventConsumerWorker<>(settings.name() + "-" + i, consumerFactory.get(), handler, this::getTopics, laneExecutor, settings, metrics));
+        }
+    }
+
+    public synchronized void start(Collection<String> initialTopics) {
+        topics = Set.copyOf(initialTopics);
+        for (EventConsumerWorker<K, V> worker : workers) {
+            Thread thread = new Thread(worker, worker.getName() + "-consumer-thread");
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        LOGGER.info("Consumer runtime '{}' started with {} thread(s)", settings.name(), workers.size());
+    }
+
+    // Applied as a subscription diff by every consumer thread, without stopping the consumption
+    public void updateTopics(Collection<String> newTopics) {
+        topics = Set.copyOf(newTopics);
+        workers.forEach(EventConsumerWorker::topicsChanged);
+    }
+
+    public Set<String> getTopics() {
+        return topics;
+    }
+
+    // Stops polling, waits for the records in progress up to "shutdownTimeout", commits their offsets and closes
+    @Override
+    public synchronized void close() {
+        LOGGER.info("Stopping consumer runtime '{}'", settings.name());
+        workers.forEach(EventConsumerWorker::stop);
+        long deadline = System.nanoTime() + (settings.shutdownTimeout().toMillis() + CLOSE_MARGIN_MS) * 1_000_000;
+        for (Thread thread : threads) {
+            try {
+                thread.join(Math.max(1, (deadline - System.nanoTime()) / 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        threads.clear();
+    }
+}
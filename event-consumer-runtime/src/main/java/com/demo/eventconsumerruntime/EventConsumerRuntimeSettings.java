@@ -0,0 +1,23 @@
+package com.demo.eventconsumerruntime;
+
+import java.time.Duration;
+
+// "consumerThreads" pollers, each one owning a KafkaConsumer of the group.
+// With "lanesPerThread" > 0 the records of a poller are handled by that many single-threaded lanes, records of the
+// same partition (or key) always going to the same lane, in order. Otherwise they are handled on the poller thread.
+// Completed offsets are committed asynchronously every "commitInterval", and a partition with "maxPendingPerPartition"
+// records not completed yet is paused until half of them completed (0 for no limit).
+// A failed record is consumed again after "retryBackoff", doubled on each failure in a row up to "maxRetryBackoff".
+public record EventConsumerRuntimeSettings(String name,
+                                           int consumerThreads,
+                                           int lanesPerThread,
+                                           LaneOrdering laneOrdering,
+                                           Duration pollTimeout,
+                                           Duration commitInterval,
+                                           int maxPendingPerPartition,
+                                           Duration retryBackoff,
+                                           Duration maxRetryBackoff,
+                                           Duration shutdownTimeout) {
+
+    public enum LaneOrdering { PARTITION, KEY }
+}
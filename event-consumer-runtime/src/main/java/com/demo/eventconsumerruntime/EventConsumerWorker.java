@@ -0,0 +1,350 @@
+package com.demo.eventconsumerruntime;
+
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// One consumer thread of a runtime: polls its KafkaConsumer, hands the records to the handler (directly or through
+// its ordered lanes) and commits, per partition, the offsets up to the first record not handled yet
+class EventConsumerWorker<K, V> implements Runnable, ConsumerRebalanceListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventConsumerWorker.class);
+    private static final long IDLE_WAIT_MS = 1000;
+
+    private final String name;
+    private final KafkaConsumer<K, V> kafkaConsumer;
+    private final EventRecordHandler<K, V> handler;
+    private final Supplier<Set<String>> topicsSupplier;
+    private final EventConsumerRuntimeSettings settings;
+    private final EventConsumerMetrics metrics;
+    private final EventSerialExecutor[] lanes;
+    private final EventOffsetTracker offsetTracker; // Only used by the consumer thread
+    private final Set<TopicPartition> pausedPartitions; // Only used by the consumer thread
+    private final Map<TopicPartition, FailedOffset> failedOffsets; // Only used by the consumer thread
+    private final Map<TopicPartition, Long> retryPausedPartitions; // Resume time, only used by the consumer thread
+    private final AtomicBoolean topicsChanged;
+    private volatile boolean running;
+    private long rebalanceStartNanos; // Only used by the consumer thread
+    private long lastCommitNanos; // Only used by the consumer thread
+    private int reportedPending; // Only used by the consumer thread
+
+    EventConsumerWorker(String name,
+                        KafkaConsumer<K, V> kafkaConsumer,
+                        EventRecordHandler<K, V> handler,
+                        Supplier<Set<String>> topicsSupplier,
+                        Executor laneExecutor,
+                        EventConsumerRuntimeSettings settings,
+                        EventConsumerMetrics metrics) {
+        this.name = name;
+        this.kafkaConsumer = kafkaConsumer;
+        this.handler = handler;
+        this.topicsSupplier = topicsSupplier;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.lanes = new EventSerialExecutor[settings.lanesPerThread()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new EventSerialExecutor(laneExecutor);
+        }
+        this.offsetTracker = new EventOffsetTracker();
+        this.pausedPartitions = new HashSet<>();
+        this.failedOffsets = new HashMap<>();
+        this.retryPausedPartitions = new HashMap<>();
+        this.topicsChanged = new AtomicBoolean(true);
+        this.running = true;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    void topicsChanged() {
+        topicsChanged.set(true);
+    }
+
+    void stop() {
+        running = false;
+        kafkaConsumer.wakeup();
+    }
+
+    @Override
+    public void run() {
+        Set<String> subscribedTopics = Set.of();
+        try {
+            while (running) {
+                try {
+                    if (topicsChanged.getAndSet(false)) {
+                        subscribedTopics = updateSubscription(subscribedTopics);
+                    }
+                    if (subscribedTopics.isEmpty()) {
+                        Thread.sleep(IDLE_WAIT_MS);
+                    } else {
+                        ConsumerRecords<K, V> records = kafkaConsumer.poll(settings.pollTimeout());
+                        for (ConsumerRecord<K, V> record : records) {
+                            track(record, handle(record));
+                        }
+                        retryFailedRecords();
+                        applyBackpressure();
+                        if (System.nanoTime() - lastCommitNanos >= settings.commitInterval().toNanos()) {
+                            commitCompletedOffsets();
+                        }
+                        reportPending();
+                    }
+                } catch (WakeupException e) {
+                    LOGGER.debug("Consumer '{}' woken up", name);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                } catch (Exception e) {
+                    LOGGER.error("Error occurred while consuming events on '{}'", name, e);
+                    topicsChanged.set(true); // Subscription checked again in case the error happened while updating it
+                }
+            }
+        } finally {
+            shutdown();
+        }
+    }
+
+    // REBALANCE LISTENER
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        markRebalanceStart();
+        // Flushed synchronously before the partitions move: records not handled yet will be consumed again by their
+        // next owner
+        Map<TopicPartition, OffsetAndMetadata> watermarks = offsetTracker.collectWatermarks(partitions);
+        if (!watermarks.isEmpty()) {
+            kafkaConsumer.commitSync(watermarks);
+        }
+        partitions.forEach(this::dropPendingOffsets);
+    }
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        LOGGER.info("Partitions assigned to '{}': {}", name, partitions);
+        metrics.rebalanced(rebalanceStartNanos != 0 ? System.nanoTime() - rebalanceStartNanos : 0);
+        rebalanceStartNanos = 0;
+    }
+
+    @Override
+    public void onPartitionsLost(Collection<TopicPartition> partitions) {
+        // Already owned by another consumer: offsets cannot be committed anymore
+        markRebalanceStart();
+        partitions.forEach(this::dropPendingOffsets);
+    }
+
+    // PRIVATE METHODS
+
+    // Subscribing to the new topic list does not stop the consumer: with the cooperative assignor, only the partitions
+    // of added or removed topics move, the others keep being consumed from their current position
+    private Set<String> updateSubscription(Set<String> subscribedTopics) {
+        Set<String> topics = topicsSupplier.get();
+        if (topics.equals(subscribedTopics)) {
+            return subscribedTopics;
+        }
+        LOGGER.info("Topics to listen on '{}': {} (added: {}, removed: {})", name, topics,
+                topics.stream().filter(topic -> !subscribedTopics.contains(topic)).toList(),
+                subscribedTopics.stream().filter(topic -> !topics.contains(topic)).toList());
+        rebalanceStartNanos = System.nanoTime();
+        if (topics.isEmpty()) {
+            kafkaConsumer.unsubscribe();
+        } else {
+            kafkaConsumer.subscribe(topics, this);
+        }
+        return topics;
+    }
+
+    private CompletableFuture<Void> handle(ConsumerRecord<K, V> record) {
+        if (lanes.length == 0) {
+            return invokeHandler(record);
+        }
+        // A lane handles its records one after the other, in consumption order
+        return lanes[laneOf(record)].submit(() -> invokeHandler(record));
+    }
+
+    private CompletableFuture<Void> invokeHandler(ConsumerRecord<K, V> record) {
+        try {
+            return handler.handle(record);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private int laneOf(ConsumerRecord<K, V> record) {
+        if (settings.laneOrdering() == EventConsumerRuntimeSettings.LaneOrdering.KEY && record.key() != null) {
+            return Math.floorMod(record.key().hashCode(), lanes.length);
+        }
+        return Math.floorMod(Objects.hash(record.topic(), record.partition()), lanes.length);
+    }
+
+    private void track(ConsumerRecord<K, V> record, CompletableFuture<Void> completed) {
+        completed.whenComplete((v, e) -> {
+            if (e != null) {
+                metrics.failed();
+                LOGGER.error("Error while handling event {}-{}@{} on '{}'", record.topic(), record.partition(), record.offset(), name, e);
+            }
+        });
+        offsetTracker.track(new TopicPartition(record.topic(), record.partition()), record.offset(), completed);
+    }
+
+    // Commits in the background, per partition, the offsets up to the first record not completed yet
+    private void commitCompletedOffsets() {
+        lastCommitNanos = System.nanoTime();
+        Map<TopicPartition, OffsetAndMetadata> committable = offsetTracker.collectCommittable();
+        if (!committable.isEmpty()) {
+            kafkaConsumer.commitAsync(committable, (offsets, e) -> {
+                if (e != null) {
+                    // Committed again with the next watermark, or by the flush on revoke or shutdown
+                    LOGGER.warn("Error while committing offsets {} on '{}': {}", offsets, name, e.getMessage());
+                }
+            });
+        }
+    }
+
+    // A failed record would hold back the commits of its partition forever: the partition is rewound to it and paused
+    // for a backoff growing with the failures of that record in a row, then the record and the ones after it (dropped
+    // from the pending ones, even if some of them are still in progress) are consumed again
+    private void retryFailedRecords() {
+        long now = System.nanoTime();
+        Map<TopicPartition, Long> failed = offsetTracker.collectFailed();
+        failed.forEach((topicPartition, offset) -> {
+            FailedOffset previous = failedOffsets.get(topicPartition);
+            int attempts = previous != null && previous.offset() == offset ? previous.attempts() + 1 : 1;
+            Duration backoff = retryBackoff(attempts);
+            LOGGER.warn("Event {}@{} failed on '{}' / Consuming it again in {} (attempt {})", topicPartition, offset, name, backoff, attempts);
+            metrics.retried();
+            failedOffsets.put(topicPartition, new FailedOffset(offset, attempts));
+            kafkaConsumer.seek(topicPartition, offset);
+            kafkaConsumer.pause(List.of(topicPartition));
+            pausedPartitions.remove(topicPartition); // Paused until the retry, whatever the backpressure
+            retryPausedPartitions.put(topicPartition, now + backoff.toNanos());
+        });
+        Set<TopicPartition> toResume = new HashSet<>();
+        retryPausedPartitions.forEach((topicPartition, resumeNanos) -> {
+            if (now - resumeNanos >= 0) {
+                toResume.add(topicPartition);
+            }
+        });
+        if (!toResume.isEmpty()) {
+            LOGGER.debug("Resuming partitions {} on '{}' to retry failed events", toResume, name);
+            kafkaConsumer.resume(toResume);
+            toResume.forEach(retryPausedPartitions::remove);
+        }
+        if (!failed.isEmpty()) {
+            reportPending();
+        }
+    }
+
+    private Duration retryBackoff(int attempts) {
+        Duration backoff = settings.retryBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(settings.maxRetryBackoff()) > 0 ? settings.maxRetryBackoff() : backoff;
+    }
+
+    // Stops fetching the partitions with too many records in progress, so that slow handlers do not pile them up
+    private void applyBackpressure() {
+        if (settings.maxPendingPerPartition() <= 0) {
+            return;
+        }
+        Set<TopicPartition> toPause = new HashSet<>();
+        Set<TopicPartition> toResume = new HashSet<>();
+        for (TopicPartition topicPartition : offsetTracker.getPartitions()) {
+            int pending = offsetTracker.pending(topicPartition);
+            if (pending >= settings.maxPendingPerPartition() && !pausedPartitions.contains(topicPartition)) {
+                toPause.add(topicPartition);
+            }
+        }
+        for (TopicPartition topicPartition : pausedPartitions) {
+            if (offsetTracker.pending(topicPartition) <= settings.maxPendingPerPartition() / 2) {
+                toResume.add(topicPartition);
+            }
+        }
+        if (!toPause.isEmpty()) {
+            LOGGER.debug("Pausing partitions {} on '{}'", toPause, name);
+            kafkaConsumer.pause(toPause);
+            pausedPartitions.addAll(toPause);
+        }
+        if (!toResume.isEmpty()) {
+            LOGGER.debug("Resuming partitions {} on '{}'", toResume, name);
+            kafkaConsumer.resume(toResume);
+            pausedPartitions.removeAll(toResume);
+        }
+    }
+
+    private void dropPendingOffsets(TopicPartition topicPartition) {
+        offsetTracker.remove(topicPartition);
+        pausedPartitions.remove(topicPartition);
+        failedOffsets.remove(topicPartition);
+        retryPausedPartitions.remove(topicPartition);
+        reportPending();
+    }
+
+    private void reportPending() {
+        int pending = offsetTracker.pending();
+        metrics.pendingChanged(pending - reportedPending);
+        reportedPending = pending;
+    }
+
+    private void markRebalanceStart() {
+        if (rebalanceStartNanos == 0) {
+            rebalanceStartNanos = System.nanoTime();
+        }
+    }
+
+    private void shutdown() {
+        try {
+            offsetTracker.allPending().get(settings.shutdownTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Records still in progress on '{}' after {} / They will be consumed again", name, settings.shutdownTimeout());
+        } catch (Exception e) {
+            LOGGER.debug("Records in error on '{}' / They will be consumed again", name);
+        }
+        try {
+            try {
+                flushCompletedOffsets();
+            } catch (WakeupException e) {
+                // Wakeup requested by "stop" while the consumer was not polling
+                flushCompletedOffsets();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error while committing offsets of '{}' on shutdown", name, e);
+        }
+        metrics.pendingChanged(-reportedPending);
+        kafkaConsumer.close();
+        LOGGER.info("Consumer '{}' closed", name);
+    }
+
+    private void flushCompletedOffsets() {
+        Map<TopicPartition, OffsetAndMetadata> watermarks = offsetTracker.collectWatermarks(offsetTracker.getPartitions());
+        if (!watermarks.isEmpty()) {
+            kafkaConsumer.commitSync(watermarks);
+        }
+    }
+
+    // PRIVATE CLASSES
+
+    // Last failed offset of a partition, with its failures in a row
+    private record FailedOffset(long offset, int attempts) {}
+}
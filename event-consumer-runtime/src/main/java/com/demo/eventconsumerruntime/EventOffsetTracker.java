@@ -0,0 +1,113 @@
+package com.demo.eventconsumerruntime;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Completed-offset watermarks of the partitions owned by one consumer thread (not thread-safe, only used by it).
+// Records complete in any order: the watermark of a partition only moves past a record once it and all the
+// records before it completed normally, so that committing it never skips an unprocessed event.
+class EventOffsetTracker {
+
+    // Offset of a consumed record, committable once "completed" completes normally
+    private record PendingOffset(long offset, CompletableFuture<Void> completed) {}
+
+    private static class PartitionOffsets {
+        private final Deque<PendingOffset> pending = new ArrayDeque<>();
+        private long watermark = -1; // Next offset to consume once everything before it is completed
+        private long committed = -1;
+    }
+
+    private final Map<TopicPartition, PartitionOffsets> partitions = new HashMap<>();
+
+    void track(TopicPartition topicPartition, long offset, CompletableFuture<Void> completed) {
+        partitions.computeIfAbsent(topicPartition, tp -> new PartitionOffsets())
+                .pending.add(new PendingOffset(offset, completed));
+    }
+
+    int pending(TopicPartition topicPartition) {
+        PartitionOffsets offsets = partitions.get(topicPartition);
+        return offsets == null ? 0 : offsets.pending.size();
+    }
+
+    int pending() {
+        return partitions.values().stream().mapToInt(offsets -> offsets.pending.size()).sum();
+    }
+
+    // Moves the watermarks and returns the ones not committed yet, considering them as committed
+    Map<TopicPartition, OffsetAndMetadata> collectCommittable() {
+        Map<TopicPartition, OffsetAndMetadata> committable = new HashMap<>();
+        partitions.forEach((topicPartition, offsets) -> {
+            advance(offsets);
+            if (offsets.watermark > offsets.committed) {
+                committable.put(topicPartition, new OffsetAndMetadata(offsets.watermark));
+                offsets.committed = offsets.watermark;
+            }
+        });
+        return committable;
+    }
+
+    // Watermarks of the given partitions, even if already committed (a previous async commit may have failed)
+    Map<TopicPartition, OffsetAndMetadata> collectWatermarks(Collection<TopicPartition> topicPartitions) {
+        Map<TopicPartition, OffsetAndMetadata> watermarks = new HashMap<>();
+        for (TopicPartition topicPartition : topicPartitions) {
+            PartitionOffsets offsets = partitions.get(topicPartition);
+            if (offsets != null) {
+                advance(offsets);
+                if (offsets.watermark >= 0) {
+                    watermarks.put(topicPartition, new OffsetAndMetadata(offsets.watermark));
+                    offsets.committed = offsets.watermark;
+                }
+            }
+        }
+        return watermarks;
+    }
+
+    // Offsets to consume again: for each partition whose first record not committed yet failed, its offset. The
+    // pending records of the partition are dropped, as the ones after the failed record are consumed again as well.
+    Map<TopicPartition, Long> collectFailed() {
+        Map<TopicPartition, Long> failed = new HashMap<>();
+        partitions.forEach((topicPartition, offsets) -> {
+            advance(offsets);
+            PendingOffset first = offsets.pending.peek();
+            if (first != null && first.completed().isCompletedExceptionally()) {
+                failed.put(topicPartition, first.offset());
+                offsets.pending.clear();
+            }
+        });
+        return failed;
+    }
+
+    Collection<TopicPartition> getPartitions() {
+        return partitions.keySet();
+    }
+
+    // Returns the number of records dropped while still pending
+    int remove(TopicPartition topicPartition) {
+        PartitionOffsets offsets = partitions.remove(topicPartition);
+        return offsets == null ? 0 : offsets.pending.size();
+    }
+
+    CompletableFuture<Void> allPending() {
+        return CompletableFuture.allOf(partitions.values().stream()
+                .flatMap(offsets -> offsets.pending.stream())
+                .map(PendingOffset::completed)
+                .toArray(CompletableFuture<?>[]::new));
+    }
+
+    // PRIVATE METHODS
+
+    private static void advance(PartitionOffsets offsets) {
+        while (!offsets.pending.isEmpty()
+                && offsets.pending.peek().completed().isDone()
+                && !offsets.pending.peek().completed().isCompletedExceptionally()) {
+            offsets.watermark = offsets.pending.poll().offset() + 1;
+        }
+    }
+}
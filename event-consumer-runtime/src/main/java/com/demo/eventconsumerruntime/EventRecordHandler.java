@@ -0,0 +1,14 @@
+package com.demo.eventconsumerruntime;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.concurrent.CompletableFuture;
+
+// Processes one consumed record: its offset is committed once the returned future completes normally.
+// A future completing exceptionally holds back the commits of its partition, which is rewound to the record: it is
+// consumed again after a backoff, along with the records after it (so that handlers must be idempotent).
+@FunctionalInterface
+public interface EventRecordHandler<K, V> {
+
+    CompletableFuture<Void> handle(ConsumerRecord<K, V> record) throws Exception;
+}
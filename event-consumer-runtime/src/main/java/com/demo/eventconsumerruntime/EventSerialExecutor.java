@@ -0,0 +1,81 @@
+package com.demo.eventconsumerruntime;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+// Ordered lane on top of a shared executor: tasks run one after the other, in submission order, without holding a
+// thread of the executor while the lane is empty (so that it can be backed by virtual threads).
+// A task rejected by the executor fails its future, and the lane goes on with the next one.
+class EventSerialExecutor {
+
+    private final Queue<LaneTask> tasks;
+    private final Executor executor;
+    private LaneTask active;
+
+    EventSerialExecutor(Executor executor) {
+        this.tasks = new ArrayDeque<>();
+        this.executor = executor;
+    }
+
+    // The returned future completes as the one returned by the task, the next task starting as soon as this one
+    // returned it
+    synchronized CompletableFuture<Void> submit(Supplier<CompletableFuture<Void>> task) {
+        LaneTask laneTask = new LaneTask(task, new CompletableFuture<>());
+        tasks.add(laneTask);
+        if (active == null) {
+            scheduleNext();
+        }
+        return laneTask.completed();
+    }
+
+    // PRIVATE METHODS
+
+    private synchronized void scheduleNext() {
+        while ((active = tasks.poll()) != null) {
+            try {
+                executor.execute(active);
+                return;
+            } catch (RejectedExecutionException e) {
+                active.completed().completeExceptionally(e);
+            }
+        }
+    }
+
+    // PRIVATE CLASSES
+
+    private class LaneTask implements Runnable {
+
+        private final Supplier<CompletableFuture<Void>> task;
+        private final CompletableFuture<Void> completed;
+
+        private LaneTask(Supplier<CompletableFuture<Void>> task, CompletableFuture<Void> completed) {
+            this.task = task;
+            this.completed = completed;
+        }
+
+        private CompletableFuture<Void> completed() {
+            return completed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.get().whenComplete((v, e) -> {
+                    if (e != null) {
+                        completed.completeExceptionally(e);
+                    } else {
+                        completed.complete(null);
+                    }
+                });
+            } catch (Exception e) {
+                completed.completeExceptionally(e);
+            } finally {
+                scheduleNext();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.demo.eventconsumerruntime;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventOffsetTrackerTests {
+
+	private static final TopicPartition PARTITION = new TopicPartition("topic", 0);
+
+	private final EventOffsetTracker offsetTracker = new EventOffsetTracker();
+
+	@Test
+	void commitsUpToFirstRecordNotCompleted() {
+		CompletableFuture<Void> second = new CompletableFuture<>();
+		offsetTracker.track(PARTITION, 0, CompletableFuture.completedFuture(null));
+		offsetTracker.track(PARTITION, 1, second);
+		offsetTracker.track(PARTITION, 2, CompletableFuture.completedFuture(null));
+
+		assertThat(offsetTracker.collectCommittable()).isEqualTo(Map.of(PARTITION, new OffsetAndMetadata(1)));
+		assertThat(offsetTracker.pending(PARTITION)).isEqualTo(2);
+
+		second.complete(null);
+
+		assertThat(offsetTracker.collectCommittable()).isEqualTo(Map.of(PARTITION, new OffsetAndMetadata(3)));
+		assertThat(offsetTracker.pending(PARTITION)).isZero();
+	}
+
+	@Test
+	void commitsContinueOnceFailedRecordIsConsumedAgain() {
+		offsetTracker.track(PARTITION, 0, CompletableFuture.completedFuture(null));
+		offsetTracker.track(PARTITION, 1, CompletableFuture.failedFuture(new IllegalStateException("Handler failure")));
+		offsetTracker.track(PARTITION, 2, CompletableFuture.completedFuture(null));
+
+		assertThat(offsetTracker.collectCommittable()).isEqualTo(Map.of(PARTITION, new OffsetAndMetadata(1)));
+		assertThat(offsetTracker.collectFailed()).isEqualTo(Map.of(PARTITION, 1L));
+		assertThat(offsetTracker.pending(PARTITION)).isZero();
+		assertThat(offsetTracker.collectFailed()).isEmpty();
+
+		// Consumed again from the failed record
+		offsetTracker.track(PARTITION, 1, CompletableFuture.completedFuture(null));
+		offsetTracker.track(PARTITION, 2, CompletableFuture.completedFuture(null));
+		offsetTracker.track(PARTITION, 3, CompletableFuture.completedFuture(null));
+
+		assertThat(offsetTracker.collectFailed()).isEmpty();
+		assertThat(offsetTracker.collectCommittable()).isEqualTo(Map.of(PARTITION, new OffsetAndMetadata(4)));
+	}
+
+	@Test
+	void failedRecordWaitsForRecordsBeforeIt() {
+		CompletableFuture<Void> first = new CompletableFuture<>();
+		offsetTracker.track(PARTITION, 0, first);
+		offsetTracker.track(PARTITION, 1, CompletableFuture.failedFuture(new IllegalStateException("Handler failure")));
+
+		assertThat(offsetTracker.collectFailed()).isEmpty();
+
+		first.complete(null);
+
+		assertThat(offsetTracker.collectFailed()).isEqualTo(Map.of(PARTITION, 1L));
+		assertThat(offsetTracker.collectCommittable()).isEqualTo(Map.of(PARTITION, new OffsetAndMetadata(1)));
+	}
+}
@@ -0,0 +1,42 @@
+package com.demo.eventconsumerruntime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventSerialExecutorTests {
+
+	@Test
+	void failsRejectedTaskAndRunsNextOne() {
+		AtomicInteger executions = new AtomicInteger();
+		EventSerialExecutor lane = new EventSerialExecutor(task -> {
+			if (executions.incrementAndGet() == 1) {
+				throw new RejectedExecutionException("Executor saturated");
+			}
+			task.run();
+		});
+
+		CompletableFuture<Void> rejected = lane.submit(() -> CompletableFuture.completedFuture(null));
+		CompletableFuture<Void> accepted = lane.submit(() -> CompletableFuture.completedFuture(null));
+
+		assertThat(rejected).isCompletedExceptionally();
+		assertThat(accepted).isCompleted();
+		assertThat(accepted).isNotCompletedExceptionally();
+	}
+
+	@Test
+	void completesAsTaskFuture() {
+		EventSerialExecutor lane = new EventSerialExecutor(Runnable::run);
+		CompletableFuture<Void> handled = new CompletableFuture<>();
+
+		CompletableFuture<Void> completed = lane.submit(() -> handled);
+
+		assertThat(completed).isNotDone();
+		handled.completeExceptionally(new IllegalStateException("Handler failure"));
+		assertThat(completed).isCompletedExceptionally();
+	}
+}
@@ -0,0 +1,39 @@
+package com.demo.eventconsumer.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+@Configuration
+public class EventWebhookConfiguration {
+
+    @Value("${webhook.max-connections}")
+    private int maxConnections;
+
+    @Value("${webhook.max-idle-time}")
+    private Duration maxIdleTime;
+
+    @Value("${webhook.response-timeout}")
+    private Duration responseTimeout;
+
+    // One connection pool shared by every webhook call (connections are kept alive per callback host)
+    @Bean
+    public WebClient webhookWebClient(WebClient.Builder builder) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("webhook")
+                .maxConnections(maxConnections)
+                .maxIdleTime(maxIdleTime)
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .responseTimeout(responseTimeout);
+        return builder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -1,36 +1,48 @@
 package com.demo.eventconsumer.controller;
 
 import com.demo.eventconsumer.model.EventSchemaModel;
+import com.demo.eventconsumer.model.EventSubscriptionBatchingModel;
 import com.demo.eventconsumer.model.EventSubscriptionModel;
-import com.demo.eventconsumer.repository.EventSchemaRepository;
-import com.demo.eventconsumer.repository.EventSubscriptionRepository;
-import com.demo.eventconsumer.service.EventDispatcherService;
+import com.demo.eventconsumer.service.mapping.EventMappingCacheService;
+import com.demo.eventconsumer.service.subscription.EventSubscriptionCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/subscription")
 public class EventSubscriptionController {
 
-    public record EventSubscriptionRequest(String callbackUrl) {}
+    public record EventSubscriptionRequest(String callbackUrl, EventBatchingRequest batching) {}
+
+    // Unset limits take the default ones
+    public record EventBatchingRequest(EventSubscriptionBatchingModel.Format format, Integer maxSize, Integer maxBytes, Duration maxLinger) {}
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventSubscriptionController.class);
-    private final EventSubscriptionRepository eventSubscriptionRepository;
-    private final EventSchemaRepository eventSchemaRepository;
-    private final EventDispatcherService eventDispatcherService;
+    private final EventSubscriptionCacheService subscriptionCacheService;
+    private final EventMappingCacheService mappingCacheService;
+    private final int defaultBatchMaxSize;
+    private final int defaultBatchMaxBytes;
+    private final Duration defaultBatchMaxLinger;
 
     @Autowired
-    public EventSubscriptionController(EventSubscriptionRepository eventSubscriptionRepository,
-                                       EventSchemaRepository eventSchemaRepository,
-                                       EventDispatcherService eventDispatcherService) {
-        this.eventSubscriptionRepository = eventSubscriptionRepository;
-        this.eventSchemaRepository = eventSchemaRepository;
-        this.eventDispatcherService = eventDispatcherService;
+    public EventSubscriptionController(EventSubscriptionCacheService subscriptionCacheService,
+                                       EventMappingCacheService mappingCacheService,
+                                       @Value("${webhook.batching.max-size}") int defaultBatchMaxSize,
+                                       @Value("${webhook.batching.max-bytes}") int defaultBatchMaxBytes,
+                                       @Value("${webhook.batching.max-linger}") Duration defaultBatchMaxLinger) {
+        this.subscriptionCacheService = subscriptionCacheService;
+        this.mappingCacheService = mappingCacheService;
+        this.defaultBatchMaxSize = defaultBatchMaxSize;
+        this.defaultBatchMaxBytes = defaultBatchMaxBytes;
+        this.defaultBatchMaxLinger = defaultBatchMaxLinger;
     }
 
     @PostMapping("/{eventName}")
@@ -38,13 +50,15 @@ public class EventSubscriptionController {
                                             @RequestBody EventSubscriptionRequest subscriptionRequest) {
         try {
             String topicName = fetchTopicByEventName(eventName);
-            EventSubscriptionModel eventSubscriptionModel = eventSubscriptionRepository.findById(topicName)
+            EventSubscriptionModel eventSubscriptionModel = subscriptionCacheService.getSubscription(topicName)
                     .orElseGet(() -> initSubscription(topicName));
-            if (!eventSubscriptionModel.callbackUrls().contains(subscriptionRequest.callbackUrl())) {
-                eventSubscriptionModel.callbackUrls().add(subscriptionRequest.callbackUrl());
+            // The cached subscription is shared with the consumer thread: it is copied instead of being modified
+            List<String> callbackUrls = new ArrayList<>(eventSubscriptionModel.callbackUrls());
+            if (!callbackUrls.contains(subscriptionRequest.callbackUrl())) {
+                callbackUrls.add(subscriptionRequest.callbackUrl());
             }
-            eventSubscriptionRepository.save(eventSubscriptionModel);
-            eventDispatcherService.triggerConsumerUpdate();
+            eventSubscriptionModel = updateBatching(new EventSubscriptionModel(topicName, callbackUrls, eventSubscriptionModel.batchings()), subscriptionRequest);
+            subscriptionCacheService.save(eventSubscriptionModel);
             return ResponseEntity.accepted().build();
         } catch (Exception e) {
             LOGGER.error("Error while subscribing to an event stream", e);
@@ -56,7 +70,7 @@ public class EventSubscriptionController {
     public ResponseEntity<String> unsubscribe(@PathVariable String eventName) {
         try {
             String topicName = fetchTopicByEventName(eventName);
-            eventSubscriptionRepository.deleteById(topicName);
+            subscriptionCacheService.delete(topicName);
             return ResponseEntity.accepted().build();
         } catch (Exception e) {
             LOGGER.error("Error while unsubscribing to an event stream", e);
@@ -67,12 +81,32 @@ public class EventSubscriptionController {
     // PRIVATE METHODS
 
     private String fetchTopicByEventName(String event) {
-        return eventSchemaRepository.findById(event)
+        return mappingCacheService.getMapping(event)
                 .map(EventSchemaModel::topicName)
                 .orElseThrow(() -> new IllegalArgumentException("Event '" + event + "' not known in database"));
     }
 
     private EventSubscriptionModel initSubscription(String topicName) {
-        return new EventSubscriptionModel(topicName, new ArrayList<>());
+        return new EventSubscriptionModel(topicName, new ArrayList<>(), new ArrayList<>());
+    }
+
+    // Subscribing again to an event replaces the batching settings of the callback URL
+    private EventSubscriptionModel updateBatching(EventSubscriptionModel eventSubscriptionModel, EventSubscriptionRequest subscriptionRequest) {
+        List<EventSubscriptionBatchingModel> batchings = new ArrayList<>();
+        if (eventSubscriptionModel.batchings() != null) {
+            eventSubscriptionModel.batchings().stream()
+                    .filter(batching -> !batching.callbackUrl().equals(subscriptionRequest.callbackUrl()))
+                    .forEach(batchings::add);
+        }
+        EventBatchingRequest batchingRequest = subscriptionRequest.batching();
+        if (batchingRequest != null) {
+            batchings.add(new EventSubscriptionBatchingModel(
+                    subscriptionRequest.callbackUrl(),
+                    batchingRequest.format() != null ? batchingRequest.format() : EventSubscriptionBatchingModel.Format.JSON_ARRAY,
+                    batchingRequest.maxSize() != null ? batchingRequest.maxSize() : defaultBatchMaxSize,
+                    batchingRequest.maxBytes() != null ? batchingRequest.maxBytes() : defaultBatchMaxBytes,
+                    (batchingRequest.maxLinger() != null ? batchingRequest.maxLinger() : defaultBatchMaxLinger).toMillis()));
+        }
+        return new EventSubscriptionModel(eventSubscriptionModel.id(), eventSubscriptionModel.callbackUrls(), batchings);
     }
 }
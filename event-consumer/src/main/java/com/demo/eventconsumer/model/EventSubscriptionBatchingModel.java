@@ -0,0 +1,8 @@
+package com.demo.eventconsumer.model;
+
+// Opt-in batched delivery of the events of a subscription to one of its callback URLs:
+// a batch is sent as soon as it holds "maxSize" events or "maxBytes" bytes, or "maxLingerMs" after its first event
+public record EventSubscriptionBatchingModel(String callbackUrl, Format format, int maxSize, int maxBytes, long maxLingerMs) {
+
+    public enum Format { JSON_ARRAY, NDJSON }
+}
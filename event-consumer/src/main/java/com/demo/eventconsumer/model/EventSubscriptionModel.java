@@ -4,7 +4,16 @@ package com.demo.eventconsumer.model;
 import org.springframework.data.redis.core.RedisHash;
 
 import java.util.List;
+import java.util.Optional;
 
 // "id" is the topic name
 @RedisHash("EventSubscription")
-public record EventSubscriptionModel(String id, List<String> callbackUrls) {}
+public record EventSubscriptionModel(String id, List<String> callbackUrls, List<EventSubscriptionBatchingModel> batchings) {
+
+    // Callback URLs without batching settings receive one call per event
+    public Optional<EventSubscriptionBatchingModel> batchingOf(String callbackUrl) {
+        return batchings == null ? Optional.empty() : batchings.stream()
+                .filter(batching -> batching.callbackUrl().equals(callbackUrl))
+                .findFirst();
+    }
+}
@@ -0,0 +1,43 @@
+package com.demo.eventconsumer.service.factory;
+
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Properties;
+
+@Service
+public class KafkaConsumerFactory {
+
+    private final String bootstrapServers;
+    private final String schemaRegistryUrl;
+
+    @Autowired
+    public KafkaConsumerFactory(@Value("${kafka.bootstrap-servers}") String bootstrapServers,
+                                @Value("${kafka.schema-registry-url}") String schemaRegistryUrl) {
+        this.bootstrapServers = bootstrapServers;
+        this.schemaRegistryUrl = schemaRegistryUrl;
+    }
+
+    // One consumer per thread of the consumer runtime
+    public KafkaConsumer<String, GenericRecord> buildKafkaConsumer() {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "io.confluent.kafka.serializers.KafkaAvroDeserializer");
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, "event-gateway");
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest"); // TO BE DEFINED
+        properties.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        properties.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName()); // Subscription changes only move the partitions of the changed topics
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false); // Offsets are committed once all subscribers accepted the events
+        properties.put("schema.registry.url", schemaRegistryUrl);
+        properties.put("value.subject.name.strategy", "io.confluent.kafka.serializers.subject.RecordNameStrategy");
+        properties.put("specific.avro.reader", "false"); // TO PULL GENERICRECORD
+        properties.put("auto.register.schemas", "false");
+        return new KafkaConsumer<>(properties);
+    }
+}
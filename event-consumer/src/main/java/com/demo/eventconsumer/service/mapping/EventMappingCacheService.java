@@ -0,0 +1,59 @@
+package com.demo.eventconsumer.service.mapping;
+
+import com.demo.eventconsumer.model.EventSchemaModel;
+import com.demo.eventconsumer.repository.EventSchemaRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+// Near-cache of the "EventMapping" hashes: entries are evicted when event-producer saves a mapping
+@Service
+public class EventMappingCacheService {
+
+    public static final String INVALIDATION_CHANNEL = "EventMapping:invalidation";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventMappingCacheService.class);
+    private static final String CACHE_NAME = "event-mapping";
+
+    private final LoadingCache<String, EventSchemaModel> mappingCache;
+
+    @Autowired
+    public EventMappingCacheService(EventSchemaRepository eventSchemaRepository,
+                                    RedisMessageListenerContainer listenerContainer,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${mapping-cache.max-size}") long maxSize,
+                                    @Value("${mapping-cache.expire-after-write}") Duration expireAfterWrite) {
+        this.mappingCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite) // Safety net if an invalidation message is missed
+                .recordStats()
+                .build(eventName -> eventSchemaRepository.findById(eventName).orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, mappingCache, CACHE_NAME);
+        listenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public Optional<EventSchemaModel> getMapping(String eventName) {
+        return Optional.ofNullable(mappingCache.get(eventName));
+    }
+
+    // PRIVATE METHODS
+
+    private void onInvalidation(Message message, byte[] pattern) {
+        String eventName = new String(message.getBody(), StandardCharsets.UTF_8);
+        LOGGER.info("Mapping of event '{}' updated / Evicting it from cache", eventName);
+        mappingCache.invalidate(eventName);
+    }
+}
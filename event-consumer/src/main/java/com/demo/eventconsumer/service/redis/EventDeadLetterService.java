@@ -0,0 +1,39 @@
+package com.demo.eventconsumer.service.redis;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+// Events that could not be delivered to a webhook are kept in a Redis stream to be replayed later
+@Service
+public class EventDeadLetterService {
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final String deadLetterStream;
+
+    @Autowired
+    public EventDeadLetterService(ReactiveStringRedisTemplate redisTemplate,
+                                  @Value("${webhook.dead-letter-stream}") String deadLetterStream) {
+        this.redisTemplate = redisTemplate;
+        this.deadLetterStream = deadLetterStream;
+    }
+
+    public Mono<RecordId> send(String callbackUrl, String topic, int partition, long offset, String reason, byte[] payload) {
+        Map<String, String> fields = Map.of(
+                "callbackUrl", callbackUrl,
+                "topic", topic,
+                "partition", String.valueOf(partition),
+                "offset", String.valueOf(offset),
+                "reason", reason,
+                "payload", new String(payload, StandardCharsets.UTF_8)
+        );
+        return redisTemplate.opsForStream().add(StreamRecords.newRecord().in(deadLetterStream).ofMap(fields));
+    }
+}
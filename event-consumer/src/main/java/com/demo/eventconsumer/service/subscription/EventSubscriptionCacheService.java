@@ -0,0 +1,107 @@
+package com.demo.eventconsumer.service.subscription;
+
+import com.demo.eventconsumer.model.EventSubscriptionModel;
+import com.demo.eventconsumer.repository.EventSubscriptionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.StreamSupport;
+
+// In-memory snapshot of the "EventSubscription" hashes, keyed by topic: readers never hit Redis.
+// Every change replaces the whole snapshot, and is notified to the other instances through Redis pub/sub.
+@Service
+public class EventSubscriptionCacheService {
+
+    public static final String INVALIDATION_CHANNEL = "EventSubscription:invalidation";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventSubscriptionCacheService.class);
+
+    private final EventSubscriptionRepository eventSubscriptionRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final List<Runnable> topicsListeners;
+    private volatile Map<String, EventSubscriptionModel> subscriptions;
+
+    @Autowired
+    public EventSubscriptionCacheService(EventSubscriptionRepository eventSubscriptionRepository,
+                                         StringRedisTemplate stringRedisTemplate,
+                                         RedisMessageListenerContainer listenerContainer,
+                                         MeterRegistry meterRegistry) {
+        this.eventSubscriptionRepository = eventSubscriptionRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.topicsListeners = new CopyOnWriteArrayList<>();
+        this.subscriptions = loadSubscriptions();
+        Gauge.builder("event.subscription.topics", this, service -> service.subscriptions.size()).register(meterRegistry);
+        listenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public Optional<EventSubscriptionModel> getSubscription(String topicName) {
+        return Optional.ofNullable(subscriptions.get(topicName));
+    }
+
+    public Set<String> getTopics() {
+        return subscriptions.keySet();
+    }
+
+    public void save(EventSubscriptionModel subscription) {
+        eventSubscriptionRepository.save(subscription);
+        update(subscription.id(), subscription);
+        stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, subscription.id());
+    }
+
+    public void delete(String topicName) {
+        eventSubscriptionRepository.deleteById(topicName);
+        update(topicName, null);
+        stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, topicName);
+    }
+
+    // Called when a topic starts or stops being subscribed, from this instance or another one
+    public void addTopicsListener(Runnable listener) {
+        topicsListeners.add(listener);
+    }
+
+    // PRIVATE METHODS
+
+    private Map<String, EventSubscriptionModel> loadSubscriptions() {
+        Map<String, EventSubscriptionModel> loaded = new HashMap<>();
+        StreamSupport.stream(eventSubscriptionRepository.findAll().spliterator(), false)
+                .forEach(subscription -> loaded.put(subscription.id(), subscription));
+        LOGGER.info("{} subscription(s) loaded", loaded.size());
+        return Map.copyOf(loaded);
+    }
+
+    private void onInvalidation(Message message, byte[] pattern) {
+        String topicName = new String(message.getBody(), StandardCharsets.UTF_8);
+        LOGGER.info("Subscription of topic '{}' updated / Reloading it", topicName);
+        update(topicName, eventSubscriptionRepository.findById(topicName).orElse(null));
+    }
+
+    // Copy-on-write: the snapshot is never modified in place
+    private synchronized void update(String topicName, EventSubscriptionModel subscription) {
+        Map<String, EventSubscriptionModel> updated = new HashMap<>(subscriptions);
+        boolean topicsChanged;
+        if (subscription == null) {
+            topicsChanged = updated.remove(topicName) != null;
+        } else {
+            topicsChanged = updated.put(topicName, subscription) == null;
+        }
+        subscriptions = Map.copyOf(updated);
+        if (topicsChanged) {
+            topicsListeners.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.demo.eventconsumer.service.webhook;
+
+import java.util.concurrent.CompletableFuture;
+
+// "accepted" completes once the event is delivered to the webhook or stored as dead letter
+record EventWebhookDelivery(String topic, int partition, long offset, byte[] payload, CompletableFuture<Void> accepted) {
+
+    EventWebhookDelivery(String topic, int partition, long offset, byte[] payload) {
+        this(topic, partition, offset, payload, new CompletableFuture<>());
+    }
+}
@@ -0,0 +1,116 @@
+package com.demo.eventconsumer.service.webhook;
+
+import com.demo.eventconsumer.model.EventSubscriptionBatchingModel;
+import com.demo.eventconsumer.model.EventSubscriptionModel;
+import com.demo.eventconsumer.service.redis.EventDeadLetterService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Fans out each event to the delivery queue of all its callback URLs, without waiting for the webhooks to answer
+@Service
+public class EventWebhookDispatcherService {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final WebClient webhookWebClient;
+    private final EventDeadLetterService deadLetterService;
+    private final MeterRegistry meterRegistry;
+    private final EventWebhookSettings settings;
+    private final Map<String, EventWebhookSubscriber> subscribers;
+
+    @Autowired
+    public EventWebhookDispatcherService(WebClient webhookWebClient,
+                                         EventDeadLetterService deadLetterService,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${webhook.max-concurrency-per-subscriber}") int maxConcurrencyPerSubscriber,
+                                         @Value("${webhook.queue-capacity-per-subscriber}") int queueCapacityPerSubscriber,
+                                         @Value("${webhook.retry.max-retries}") int maxRetries,
+                                         @Value("${webhook.retry.min-backoff}") Duration minBackoff,
+                                         @Value("${webhook.retry.max-backoff}") Duration maxBackoff,
+                                         @Value("${webhook.circuit-breaker.failure-threshold}") int circuitFailureThreshold,
+                                         @Value("${webhook.circuit-breaker.open-duration}") Duration circuitOpenDuration) {
+        this.webhookWebClient = webhookWebClient;
+        this.deadLetterService = deadLetterService;
+        this.meterRegistry = meterRegistry;
+        this.settings = new EventWebhookSettings(maxConcurrencyPerSubscriber, queueCapacityPerSubscriber, maxRetries,
+                minBackoff, maxBackoff, circuitFailureThreshold, circuitOpenDuration);
+        this.subscribers = new ConcurrentHashMap<>();
+    }
+
+    // The returned future completes once every subscriber accepted the event (delivered or stored as dead letter)
+    public CompletableFuture<Void> dispatch(ConsumerRecord<String, GenericRecord> record, EventSubscriptionModel subscription) throws JsonProcessingException {
+        List<String> callbackUrls = subscription.callbackUrls();
+        // The payload is serialized once whatever the number of subscribers
+        byte[] payload = OBJECT_MAPPER.writeValueAsBytes(convertToMap(record.value()));
+        CompletableFuture<?>[] accepted = new CompletableFuture<?>[callbackUrls.size()];
+        for (int i = 0; i < callbackUrls.size(); i++) {
+            EventWebhookDelivery delivery = new EventWebhookDelivery(record.topic(), record.partition(), record.offset(), payload);
+            submit(callbackUrls.get(i), subscription.batchingOf(callbackUrls.get(i)).orElse(null), delivery);
+            accepted[i] = delivery.accepted();
+        }
+        return CompletableFuture.allOf(accepted);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(EventWebhookSubscriber::close);
+    }
+
+    // PRIVATE METHODS
+
+    private void submit(String callbackUrl, EventSubscriptionBatchingModel batching, EventWebhookDelivery delivery) {
+        EventWebhookSubscriber subscriber = getSubscriber(callbackUrl, batching);
+        while (!subscriber.submit(delivery)) {
+            // Replaced since it was looked up: the event goes to the new subscriber. Still the current one: closed on
+            // shutdown, the event being consumed again after the restart.
+            EventWebhookSubscriber current = getSubscriber(callbackUrl, batching);
+            if (current == subscriber) {
+                delivery.accepted().completeExceptionally(new IllegalStateException("Subscriber of '" + callbackUrl + "' is closed"));
+                return;
+            }
+            subscriber = current;
+        }
+    }
+
+    // A subscriber whose batching settings changed is replaced, the old one still delivering the events it holds
+    private EventWebhookSubscriber getSubscriber(String callbackUrl, EventSubscriptionBatchingModel batching) {
+        EventWebhookSubscriber subscriber = subscribers.get(callbackUrl);
+        if (subscriber != null && Objects.equals(subscriber.batching(), batching)) {
+            return subscriber;
+        }
+        return subscribers.compute(callbackUrl, (url, existing) -> {
+            if (existing != null) {
+                if (Objects.equals(existing.batching(), batching)) {
+                    return existing;
+                }
+                existing.complete();
+            }
+            return new EventWebhookSubscriber(url, batching, webhookWebClient, deadLetterService, meterRegistry, settings);
+        });
+    }
+
+    private Map<String, Object> convertToMap(GenericRecord genericRecord) {
+        Map<String, Object> values = new HashMap<>();
+        for (Schema.Field field : genericRecord.getSchema().getFields()) {
+            values.put(field.name(), genericRecord.get(field.name()));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,11 @@
+package com.demo.eventconsumer.service.webhook;
+
+import java.time.Duration;
+
+record EventWebhookSettings(int maxConcurrency,
+                            int queueCapacity,
+                            int maxRetries,
+                            Duration minBackoff,
+                            Duration maxBackoff,
+                            int circuitFailureThreshold,
+                            Duration circuitOpenDuration) {}
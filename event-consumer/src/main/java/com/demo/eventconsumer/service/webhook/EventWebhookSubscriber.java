@@ -0,0 +1,274 @@
+package com.demo.eventconsumer.service.webhook;
+
+import com.demo.eventconsumer.model.EventSubscriptionBatchingModel;
+import com.demo.eventconsumer.service.redis.EventDeadLetterService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Delivery lane of one callback URL: a bounded queue drained by at most "maxConcurrency" calls in flight.
+// Failed calls are retried with backoff, and after "circuitFailureThreshold" failed deliveries in a row the lane is
+// parked for "circuitOpenDuration". Events overflowing the queue or failing every retry go to the dead letter stream,
+// so that an unhealthy webhook never holds the Kafka consumer. Dead letter writes are retried with backoff until they
+// go through (or the lane is closed), as the offset of an event is only committed once it is delivered or stored.
+// With batching settings, queued events are grouped into JSON array or NDJSON bodies, a batch being retried and
+// dead-lettered as a whole.
+class EventWebhookSubscriber {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventWebhookSubscriber.class);
+    private static final double BACKOFF_JITTER = 0.5;
+
+    private final String callbackUrl;
+    private final EventSubscriptionBatchingModel batching;
+    private final URI callbackUri;
+    private final MediaType contentType;
+    private final WebClient webClient;
+    private final EventDeadLetterService deadLetterService;
+    private final EventWebhookSettings settings;
+    private final Sinks.Many<EventWebhookDelivery> deliveries;
+    private final AtomicInteger queued;
+    private final AtomicInteger inFlight;
+    private final AtomicInteger consecutiveFailures;
+    private volatile long circuitOpenUntilNanos;
+    private volatile boolean closed;
+    private final Timer successTimer;
+    private final Timer errorTimer;
+    private final Counter errorCounter;
+    private final Counter deadLetterCounter;
+    private final Counter deadLetterErrorCounter;
+    private final MeterRegistry meterRegistry;
+    private final List<Meter> gauges;
+    private final Disposable worker;
+
+    EventWebhookSubscriber(String callbackUrl,
+                           EventSubscriptionBatchingModel batching,
+                           WebClient webClient,
+                           EventDeadLetterService deadLetterService,
+                           MeterRegistry meterRegistry,
+                           EventWebhookSettings settings) {
+        this.callbackUrl = callbackUrl;
+        this.batching = batching;
+        this.callbackUri = URI.create(callbackUrl);
+        this.webClient = webClient;
+        this.deadLetterService = deadLetterService;
+        this.settings = settings;
+        this.deliveries = Sinks.many().unicast().onBackpressureBuffer(Queues.<EventWebhookDelivery>get(settings.queueCapacity()).get());
+        this.queued = new AtomicInteger();
+        this.inFlight = new AtomicInteger();
+        this.consecutiveFailures = new AtomicInteger();
+        this.successTimer = buildLatencyTimer(meterRegistry, callbackUrl, "success");
+        this.errorTimer = buildLatencyTimer(meterRegistry, callbackUrl, "error");
+        this.errorCounter = Counter.builder("event.webhook.errors").tag("callback", callbackUrl).register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("event.webhook.dead-letters").tag("callback", callbackUrl).register(meterRegistry);
+        this.deadLetterErrorCounter = Counter.builder("event.webhook.dead-letter.errors").tag("callback", callbackUrl).register(meterRegistry);
+        this.meterRegistry = meterRegistry;
+        this.gauges = List.of(
+                Gauge.builder("event.webhook.inflight", inFlight, AtomicInteger::get).tag("callback", callbackUrl).register(meterRegistry),
+                Gauge.builder("event.webhook.queued", queued, AtomicInteger::get).tag("callback", callbackUrl).register(meterRegistry),
+                Gauge.builder("event.webhook.circuit.open", this, subscriber -> subscriber.isCircuitOpen() ? 1 : 0).tag("callback", callbackUrl).register(meterRegistry));
+        this.contentType = batching != null && batching.format() == EventSubscriptionBatchingModel.Format.NDJSON
+                ? MediaType.APPLICATION_NDJSON
+                : MediaType.APPLICATION_JSON;
+        this.worker = batchDeliveries(deliveries.asFlux())
+                .flatMap(this::deliver, settings.maxConcurrency())
+                .subscribe();
+    }
+
+    EventSubscriptionBatchingModel batching() {
+        return batching;
+    }
+
+    // Never blocks: an event that does not fit in the queue is sent to the dead letter stream right away.
+    // Returns false if the event is not taken as the subscriber no longer accepts events (replaced or closed).
+    synchronized boolean submit(EventWebhookDelivery delivery) {
+        queued.incrementAndGet();
+        Sinks.EmitResult result = deliveries.tryEmitNext(delivery);
+        if (result.isFailure()) {
+            queued.decrementAndGet();
+            if (result != Sinks.EmitResult.FAIL_OVERFLOW) {
+                return false;
+            }
+            deadLetter(delivery, "Delivery queue full (" + result + ")").subscribe();
+        }
+        return true;
+    }
+
+    // Stops accepting events, the queued ones being still delivered
+    synchronized void complete() {
+        gauges.forEach(meterRegistry::remove);
+        deliveries.tryEmitComplete();
+    }
+
+    void close() {
+        closed = true;
+        complete();
+        worker.dispose();
+    }
+
+    // PRIVATE METHODS
+
+    private Flux<List<EventWebhookDelivery>> batchDeliveries(Flux<EventWebhookDelivery> deliveries) {
+        if (batching == null) {
+            return deliveries.map(List::of);
+        }
+        // Batches are bounded by count and linger, then split further so that no body exceeds "maxBytes"
+        return deliveries
+                .bufferTimeout(batching.maxSize(), Duration.ofMillis(batching.maxLingerMs()))
+                .concatMapIterable(this::splitByBytes);
+    }
+
+    private List<List<EventWebhookDelivery>> splitByBytes(List<EventWebhookDelivery> batch) {
+        List<List<EventWebhookDelivery>> batches = new ArrayList<>();
+        List<EventWebhookDelivery> current = new ArrayList<>();
+        int currentBytes = 0;
+        for (EventWebhookDelivery delivery : batch) {
+            // A single event larger than "maxBytes" is still sent, alone
+            if (!current.isEmpty() && currentBytes + delivery.payload().length + 1 > batching.maxBytes()) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentBytes = 0;
+            }
+            current.add(delivery);
+            currentBytes += delivery.payload().length + 1;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private Mono<Void> deliver(List<EventWebhookDelivery> batch) {
+        queued.addAndGet(-batch.size());
+        return waitForCircuit()
+                .then(post(buildBody(batch))
+                        .retryWhen(Retry.backoff(settings.maxRetries(), settings.minBackoff())
+                                .maxBackoff(settings.maxBackoff())
+                                .jitter(BACKOFF_JITTER)
+                                .filter(EventWebhookSubscriber::isRetryable)))
+                .doOnSuccess(v -> {
+                    consecutiveFailures.set(0);
+                    batch.forEach(delivery -> delivery.accepted().complete(null));
+                })
+                .onErrorResume(e -> {
+                    if (consecutiveFailures.incrementAndGet() >= settings.circuitFailureThreshold()) {
+                        LOGGER.warn("Webhook '{}' failed {} times in a row / Parking it for {}", callbackUrl, consecutiveFailures.get(), settings.circuitOpenDuration());
+                        circuitOpenUntilNanos = System.nanoTime() + settings.circuitOpenDuration().toNanos();
+                    }
+                    return Flux.fromIterable(batch)
+                            .flatMap(delivery -> deadLetter(delivery, String.valueOf(e.getMessage())))
+                            .then();
+                });
+    }
+
+    private Mono<Void> waitForCircuit() {
+        long remainingNanos = circuitOpenUntilNanos - System.nanoTime();
+        return remainingNanos > 0 ? Mono.delay(Duration.ofNanos(remainingNanos)).then() : Mono.empty();
+    }
+
+    private boolean isCircuitOpen() {
+        return circuitOpenUntilNanos - System.nanoTime() > 0;
+    }
+
+    private byte[] buildBody(List<EventWebhookDelivery> batch) {
+        if (batching == null) {
+            return batch.get(0).payload();
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        boolean jsonArray = batching.format() == EventSubscriptionBatchingModel.Format.JSON_ARRAY;
+        if (jsonArray) {
+            body.write('[');
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                body.write(jsonArray ? ',' : '\n');
+            }
+            body.writeBytes(batch.get(i).payload());
+        }
+        body.write(jsonArray ? ']' : '\n');
+        return body.toByteArray();
+    }
+
+    private Mono<Void> post(byte[] payload) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            inFlight.incrementAndGet();
+            return webClient.post()
+                    .uri(callbackUri)
+                    .contentType(contentType)
+                    .bodyValue(payload)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .doOnSuccess(response -> successTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(e -> {
+                        errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        errorCounter.increment();
+                        LOGGER.warn("Error occurred when sending data to '{}': {}", callbackUrl, e.getMessage());
+                    })
+                    .doFinally(signal -> inFlight.decrementAndGet())
+                    .then();
+        });
+    }
+
+    private Mono<Void> deadLetter(EventWebhookDelivery delivery, String reason) {
+        return deadLetterService.send(callbackUrl, delivery.topic(), delivery.partition(), delivery.offset(), reason, delivery.payload())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, settings.minBackoff())
+                        .maxBackoff(settings.maxBackoff())
+                        .jitter(BACKOFF_JITTER)
+                        .filter(e -> !closed)
+                        .doBeforeRetry(signal -> {
+                            deadLetterErrorCounter.increment();
+                            LOGGER.warn("Error while sending event {}-{}@{} for '{}' to dead letter stream / Retrying (attempt {}): {}",
+                                    delivery.topic(), delivery.partition(), delivery.offset(), callbackUrl, signal.totalRetries() + 1, signal.failure().getMessage());
+                        }))
+                .doOnSuccess(recordId -> {
+                    deadLetterCounter.increment();
+                    LOGGER.error("Event {}-{}@{} for '{}' sent to dead letter stream: {}", delivery.topic(), delivery.partition(), delivery.offset(), callbackUrl, reason);
+                    delivery.accepted().complete(null);
+                })
+                .doOnError(e -> {
+                    // Only once the lane is closed: the consumer runtime rewinds the partition, so that the event is
+                    // consumed again
+                    LOGGER.error("Error while sending event {}-{}@{} for '{}' to dead letter stream", delivery.topic(), delivery.partition(), delivery.offset(), callbackUrl, e);
+                    delivery.accepted().completeExceptionally(e);
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        // Client errors (except throttling) will not get better by retrying
+        return !(e instanceof WebClientResponseException responseException)
+                || responseException.getStatusCode().is5xxServerError()
+                || responseException.getStatusCode().isSameCodeAs(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    private static Timer buildLatencyTimer(MeterRegistry meterRegistry, String callbackUrl, String outcome) {
+        return Timer.builder("event.webhook.latency")
+                .tag("callback", callbackUrl)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -1,6 +1,6 @@
 package com.demo.eventproducer.configuration;
 
-import org.apache.avro.generic.GenericRecord;
+import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.springframework.beans.factory.annotation.Value;
@@ -20,15 +20,23 @@ public class EventProducerConfiguration {
     @Value("${kafka.schema-registry-url}")
     private String schemaRegistryUrl;
 
+    @Value("${kafka.producer.linger-ms}")
+    private int lingerMs;
+
+    @Value("${kafka.producer.batch-size}")
+    private int batchSize;
+
+    @Value("${kafka.schema-registry-subject-cache-size}")
+    private int subjectCacheSize;
+
     @Bean
-    public KafkaProducer<String, GenericRecord> kafkaProducer() {
+    public KafkaProducer<String, byte[]> kafkaProducer() {
         Properties properties = new Properties();
         properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringSerializer");
-        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, "io.confluent.kafka.serializers.KafkaAvroSerializer");
-        properties.put("schema.registry.url", schemaRegistryUrl);
-        properties.put("value.subject.name.strategy", "io.confluent.kafka.serializers.subject.RecordNameStrategy");
-        properties.put("auto.register.schemas", "false");
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.ByteArraySerializer"); // Events are Avro encoded upstream
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs); // Records sent by concurrent requests are batched together
+        properties.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
         return new KafkaProducer<>(properties);
     }
 
@@ -38,4 +46,10 @@ public class EventProducerConfiguration {
         client.setEndpoint(schemaRegistryUrl);
         return client;
     }
+
+    // Subject lookups (without registration), as done by KafkaAvroSerializer before events were encoded upstream
+    @Bean
+    public CachedSchemaRegistryClient subjectRegistryClient() {
+        return new CachedSchemaRegistryClient(schemaRegistryUrl, subjectCacheSize);
+    }
 }
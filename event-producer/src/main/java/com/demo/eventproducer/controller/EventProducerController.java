@@ -2,43 +2,81 @@ package com.demo.eventproducer.controller;
 
 import com.demo.eventproducer.repository.EventSchemaRepository;
 import com.demo.eventproducer.service.EventProducerService;
+import com.demo.eventproducer.service.queue.EventIngestionQueueService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
 
+import java.io.InputStream;
+import java.util.List;
 import java.util.UUID;
 
 @RestController
 public class EventProducerController {
 
+    public record EventBatchResponse(int count, long sent, long failed, List<EventProducerService.EventBatchItemResult> results) {}
+
     private static final Logger LOGGER = LoggerFactory.getLogger(EventProducerController.class);
     private final EventProducerService service;
+    private final EventIngestionQueueService ingestionQueueService;
+    private final String retryAfterSeconds;
 
     @Autowired
-    public EventProducerController(EventProducerService service) {
+    public EventProducerController(EventProducerService service,
+                                   EventIngestionQueueService ingestionQueueService,
+                                   @Value("${ingestion-queue.retry-after-seconds}") String retryAfterSeconds) {
         this.service = service;
+        this.ingestionQueueService = ingestionQueueService;
+        this.retryAfterSeconds = retryAfterSeconds;
     }
     
     @PostMapping("/event/{eventName}")
-    public ResponseEntity<String> sendEventTestPayload(@PathVariable String eventName,
-                                                       @RequestBody String eventData) {
-        try {
-            String clientId = "1111"; // GET CLIENT ID FROM HEADER/COOKIE ?
+    public Mono<ResponseEntity<String>> sendEventTestPayload(@PathVariable String eventName,
+                                                             @RequestBody String eventData) {
+        String clientId = "1111"; // GET CLIENT ID FROM HEADER/COOKIE ?
 
-            // We could store the event in a internal LinkedBlockingQueue as a String (or in a "technical" Kafka topic)
-            // and then answer right away to the customer with an OK status saying "will be sent"
-            service.send(buildUniqueKey(clientId), eventName, eventData);
-
-            return ResponseEntity.accepted().build();
-        } catch (Exception e) {
-            LOGGER.error("Error while sending event", e);
-            return ResponseEntity.internalServerError().body("Error");
+        // With the ingestion queue, the event is buffered and we answer right away with an accepted status saying "will be sent"
+        if (ingestionQueueService.isEnabled()) {
+            return Mono.just(enqueueEvent(buildUniqueKey(clientId), eventName, eventData));
         }
+
+        return service.send(buildUniqueKey(clientId), eventName, eventData)
+                .map(metadata -> ResponseEntity.accepted().<String>build())
+                .onErrorResume(e -> {
+                    LOGGER.error("Error while sending event", e);
+                    return Mono.just(ResponseEntity.internalServerError().body("Error"));
+                });
+    }
+
+    @PostMapping(value = "/event/{eventName}/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<ResponseEntity<EventBatchResponse>> sendEventBatch(@PathVariable String eventName,
+                                                                   InputStream eventDataStream) {
+        String clientId = "1111"; // GET CLIENT ID FROM HEADER/COOKIE ?
+
+        return service.sendBatch(eventName, eventDataStream, () -> buildUniqueKey(clientId))
+                .map(results -> {
+                    long sent = results.stream().filter(EventProducerService.EventBatchItemResult::sent).count();
+                    LOGGER.info("Batch of {} events '{}' processed: {} sent", results.size(), eventName, sent);
+                    EventBatchResponse response = new EventBatchResponse(results.size(), sent, results.size() - sent, results);
+                    // Accepted as soon as one event is sent, the response telling which ones failed
+                    return sent == 0 && !results.isEmpty()
+                            ? ResponseEntity.unprocessableEntity().body(response)
+                            : ResponseEntity.accepted().body(response);
+                })
+                .onErrorResume(e -> {
+                    LOGGER.error("Error while sending batch of events", e);
+                    return Mono.just(ResponseEntity.internalServerError().build());
+                });
     }
 
     @PostMapping("/mapping/{eventName}/{topicName}/{schemaId}")
@@ -48,6 +86,9 @@ public class EventProducerController {
         try {
             service.register(eventName, schemaId, topicName);
             return ResponseEntity.accepted().build();
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Event/schema mapping rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             LOGGER.error("Error while saving event/schema mapping", e);
             return ResponseEntity.internalServerError().body("Error");
@@ -56,6 +97,17 @@ public class EventProducerController {
 
     // PRIVATE METHODS
 
+    private ResponseEntity<String> enqueueEvent(String messageKey, String eventName, String eventData) {
+        if (ingestionQueueService.offer(messageKey, eventName, eventData)) {
+            return ResponseEntity.accepted().build();
+        } else {
+            LOGGER.warn("Ingestion queue full / Event '{}' rejected", eventName);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                    .body("Ingestion queue full");
+        }
+    }
+
     private String buildUniqueKey(String clientId) {
         return clientId + "_" + UUID.randomUUID().toString();
     }
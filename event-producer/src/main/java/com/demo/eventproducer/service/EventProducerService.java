@@ -1,81 +1,153 @@
 package com.demo.eventproducer.service;
 
 import com.demo.eventproducer.model.EventSchemaModel;
-import com.demo.eventproducer.repository.EventSchemaRepository;
+import com.demo.eventproducer.service.avro.EventAvroEncoderService;
+import com.demo.eventproducer.service.mapping.EventMappingCacheService;
+import com.demo.eventproducer.service.schema.EventSchemaCacheService;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
-import org.apache.avro.generic.GenericData;
-import org.apache.avro.generic.GenericRecord;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cloud.stream.schema.client.SchemaRegistryClient;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
-import java.util.Map;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Service
 public class EventProducerService {
 
+    public record EventBatchItemResult(int index, String key, boolean sent, String error) {}
+
     private static final Logger LOGGER = LoggerFactory.getLogger(EventProducerService.class);
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private final KafkaProducer<String, GenericRecord> kafkaProducer;
-    private final SchemaRegistryClient schemaRegistryClient;
-    private final EventSchemaRepository eventSchemaRepository;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private final KafkaProducer<String, byte[]> kafkaProducer;
+    private final EventSchemaCacheService schemaCacheService;
+    private final EventAvroEncoderService avroEncoderService;
+    private final EventMappingCacheService mappingCacheService;
 
     @Autowired
-    public EventProducerService(KafkaProducer<String, GenericRecord> kafkaProducer,
-                                SchemaRegistryClient schemaRegistryClient,
-                                EventSchemaRepository eventSchemaRepository) {
+    public EventProducerService(KafkaProducer<String, byte[]> kafkaProducer,
+                                EventSchemaCacheService schemaCacheService,
+                                EventAvroEncoderService avroEncoderService,
+                                EventMappingCacheService mappingCacheService) {
         this.kafkaProducer = kafkaProducer;
-        this.schemaRegistryClient = schemaRegistryClient;
-        this.eventSchemaRepository = eventSchemaRepository;
+        this.schemaCacheService = schemaCacheService;
+        this.avroEncoderService = avroEncoderService;
+        this.mappingCacheService = mappingCacheService;
     }
 
-    public void send(String messageKey, String eventName, String eventData) throws JsonProcessingException {
-        EventSchemaModel mapping = fetchEventSchemaMapping(eventName);
-        String schemaDefinition = fetchSchemaDefinition(mapping.schemaId());
-        GenericRecord genericRecord = buildGenericRecord(eventData, schemaDefinition);
-        sendEvent(mapping.topicName(), messageKey, genericRecord);
+    // Completes once the broker acknowledged the event: nothing is flushed so that the producer batches concurrent sends
+    public Mono<RecordMetadata> send(String messageKey, String eventName, String eventData) {
+        return Mono.fromCallable(() -> buildProducerRecord(messageKey, eventName, eventData))
+                .flatMap(this::sendEvent);
+    }
+
+    // Accepts a JSON array or NDJSON stream of events: mapping and schema are resolved once, and each event is sent
+    // as soon as it is parsed so that the producer batches the whole burst
+    public Mono<List<EventBatchItemResult>> sendBatch(String eventName, InputStream eventDataStream, Supplier<String> keySupplier) {
+        return Mono.fromCallable(() -> publishBatch(eventName, eventDataStream, keySupplier))
+                .flatMap(results -> Mono.fromFuture(CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)))
+                        .then(Mono.fromCallable(() -> results.stream().map(CompletableFuture::join).toList())));
     }
 
     public void register(String eventName, int schemaId, String topicName) {
-        eventSchemaRepository.save(new EventSchemaModel(eventName, schemaId, topicName));
+        mappingCacheService.save(new EventSchemaModel(eventName, schemaId, topicName));
     }
 
     // PRIVATE METHODS
 
-    private String fetchSchemaDefinition(int schemaId) {
-        return schemaRegistryClient.fetch(schemaId);
+    private ProducerRecord<String, byte[]> buildProducerRecord(String messageKey, String eventName, String eventData) throws IOException {
+        EventSchemaModel mapping = fetchEventSchemaMapping(eventName);
+        Schema schema = schemaCacheService.getSchema(mapping.schemaId());
+        byte[] event = avroEncoderService.encode(mapping.schemaId(), schema, eventData);
+        return new ProducerRecord<>(mapping.topicName(), messageKey, event);
     }
 
-    private EventSchemaModel fetchEventSchemaMapping(String eventName) {
-        return eventSchemaRepository.findById(eventName)
-                .orElseThrow(() -> new IllegalArgumentException("Event '" + eventName + "' not known in database"));
+    private List<CompletableFuture<EventBatchItemResult>> publishBatch(String eventName, InputStream eventDataStream, Supplier<String> keySupplier) throws IOException {
+        EventSchemaModel mapping = fetchEventSchemaMapping(eventName);
+        Schema schema = schemaCacheService.getSchema(mapping.schemaId());
+        List<CompletableFuture<EventBatchItemResult>> results = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(eventDataStream)) {
+            // Both a JSON array and a NDJSON stream are read as a sequence of values encoded one after the other
+            JsonStreamContext sequenceContext = parser.getParsingContext();
+            int index = 0;
+            String messageKey = null;
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.START_ARRAY) {
+                    sequenceContext = parser.getParsingContext();
+                    token = parser.nextToken();
+                }
+                while (token != null && token != JsonToken.END_ARRAY) {
+                    messageKey = keySupplier.get();
+                    try {
+                        byte[] event = avroEncoderService.encode(mapping.schemaId(), schema, parser);
+                        results.add(publishBatchItem(index, new ProducerRecord<>(mapping.topicName(), messageKey, event)));
+                    } catch (AvroRuntimeException e) {
+                        results.add(CompletableFuture.completedFuture(new EventBatchItemResult(index, messageKey, false, e.getMessage())));
+                        skipRemainingTokens(parser, sequenceContext);
+                    }
+                    index++;
+                    messageKey = null;
+                    token = parser.nextToken();
+                }
+            } catch (IOException e) {
+                // The stream cannot be read any further once its syntax is broken or its reading failed: the events
+                // read so far are still sent, and the failure is given as the result of the event being read
+                if (results.size() == index) {
+                    results.add(CompletableFuture.completedFuture(new EventBatchItemResult(index, messageKey, false, readErrorMessage(e))));
+                }
+                LOGGER.warn("Batch of '{}' read up to event {}: {}", eventName, index, e.getMessage());
+            }
+        }
+        LOGGER.info("{} events of '{}' submitted on topic '{}'", results.size(), eventName, mapping.topicName());
+        return results;
     }
 
-    private static GenericRecord buildGenericRecord(String eventData, String schemaDefinition) throws JsonProcessingException {
-        Schema.Parser parser = new Schema.Parser();
-        Schema schema = parser.parse(schemaDefinition);
-        GenericRecord genericRecord = new GenericData.Record(schema);
-        Map<String, Object> map = OBJECT_MAPPER.readValue(eventData, new TypeReference<>() {});
-        map.forEach(genericRecord::put);
-        return genericRecord;
+    private static void skipRemainingTokens(JsonParser parser, JsonStreamContext sequenceContext) throws IOException {
+        // Moves to the last token of an event left half-read, so that the next event can be read
+        while (parser.getParsingContext() != sequenceContext && parser.nextToken() != null) {
+        }
     }
 
-    private void sendEvent(String topicName, String messageKey, GenericRecord genericRecord) {
-        ProducerRecord<String, GenericRecord> record = new ProducerRecord<>(topicName, messageKey, genericRecord);
-        try {
-            kafkaProducer.send(record);
-        } catch (Exception e) {
-            LOGGER.error("Error while sending event on topic '{}'", topicName, e);
-        } finally {
-            kafkaProducer.flush();
-        }
+    private static String readErrorMessage(IOException e) {
+        return e instanceof JsonProcessingException jsonException ? jsonException.getOriginalMessage() : e.getMessage();
+    }
+
+    private CompletableFuture<EventBatchItemResult> publishBatchItem(int index, ProducerRecord<String, byte[]> record) {
+        return sendEvent(record).toFuture()
+                .handle((metadata, exception) -> exception == null
+                        ? new EventBatchItemResult(index, record.key(), true, null)
+                        : new EventBatchItemResult(index, record.key(), false, exception.getMessage()));
+    }
+
+    private EventSchemaModel fetchEventSchemaMapping(String eventName) {
+        return mappingCacheService.getMapping(eventName)
+                .orElseThrow(() -> new IllegalArgumentException("Event '" + eventName + "' not known in database"));
+    }
+
+    private Mono<RecordMetadata> sendEvent(ProducerRecord<String, byte[]> record) {
+        return Mono.create(sink -> kafkaProducer.send(record, (metadata, exception) -> {
+            if (exception == null) {
+                sink.success(metadata);
+            } else {
+                LOGGER.error("Error while sending event on topic '{}'", record.topic(), exception);
+                sink.error(exception);
+            }
+        }));
     }
 }
@@ -0,0 +1,330 @@
+package com.demo.eventproducer.service.avro;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+// Converts a JSON event into the Confluent wire format (magic byte + schema ID + Avro binary) straight from the Jackson
+// token stream: fields are validated against the schema as they are read, without any intermediate Map or GenericRecord
+@Service
+public class EventAvroEncoderService {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final EncoderFactory ENCODER_FACTORY = EncoderFactory.get();
+    private static final byte MAGIC_BYTE = 0x0;
+    private static final int INITIAL_BUFFER_SIZE = 256;
+    private static final String UUID_LOGICAL_TYPE = "uuid";
+
+    public byte[] encode(int schemaId, Schema schema, String eventData) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(eventData)) {
+            parser.nextToken();
+            byte[] event = encode(schemaId, schema, parser);
+            if (parser.nextToken() != null) {
+                throw new AvroTypeException("Unexpected content after event: " + parser.currentToken());
+            }
+            return event;
+        }
+    }
+
+    // The parser shall point to the first token of the event, and is left on its last token
+    public byte[] encode(int schemaId, Schema schema, JsonParser parser) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        out.write(MAGIC_BYTE);
+        out.write(schemaId >>> 24);
+        out.write(schemaId >>> 16);
+        out.write(schemaId >>> 8);
+        out.write(schemaId);
+        BinaryEncoder encoder = ENCODER_FACTORY.directBinaryEncoder(out, null);
+        writeValue(schema, parser, encoder, "");
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    // PRIVATE METHODS
+
+    private static void writeValue(Schema schema, JsonParser parser, Encoder encoder, String path) throws IOException {
+        JsonToken token = parser.currentToken();
+        switch (schema.getType()) {
+            case NULL -> {
+                expectToken(schema, token, path, JsonToken.VALUE_NULL);
+                encoder.writeNull();
+            }
+            case BOOLEAN -> {
+                expectToken(schema, token, path, JsonToken.VALUE_TRUE, JsonToken.VALUE_FALSE);
+                encoder.writeBoolean(token == JsonToken.VALUE_TRUE);
+            }
+            case INT -> encoder.writeInt(readInt(schema, parser, path));
+            case LONG -> encoder.writeLong(readLong(schema, parser, path));
+            case FLOAT -> encoder.writeFloat((float) readDouble(schema, parser, path));
+            case DOUBLE -> encoder.writeDouble(readDouble(schema, parser, path));
+            case STRING -> {
+                expectToken(schema, token, path, JsonToken.VALUE_STRING);
+                String value = parser.getText();
+                if (schema.getLogicalType() != null && UUID_LOGICAL_TYPE.equals(schema.getLogicalType().getName())) {
+                    parseLogicalValue(schema, path, value, UUID::fromString);
+                }
+                encoder.writeString(value);
+            }
+            case BYTES -> encoder.writeBytes(readBytes(schema, parser, path));
+            case FIXED -> {
+                byte[] value = readBytes(schema, parser, path);
+                if (value.length != schema.getFixedSize()) {
+                    throw typeError(schema, path, value.length + " bytes");
+                }
+                encoder.writeFixed(value);
+            }
+            case ENUM -> {
+                expectToken(schema, token, path, JsonToken.VALUE_STRING);
+                String symbol = parser.getText();
+                if (!schema.hasEnumSymbol(symbol)) {
+                    throw typeError(schema, path, "symbol '" + symbol + "'");
+                }
+                encoder.writeEnum(schema.getEnumOrdinal(symbol));
+            }
+            case ARRAY -> writeArray(schema, parser, encoder, path);
+            case MAP -> writeMap(schema, parser, encoder, path);
+            case RECORD -> writeRecord(schema, parser, encoder, path);
+            case UNION -> {
+                int branch = resolveUnionBranch(schema, parser, path);
+                encoder.writeIndex(branch);
+                writeValue(schema.getTypes().get(branch), parser, encoder, path);
+            }
+        }
+    }
+
+    private static void writeRecord(Schema schema, JsonParser parser, Encoder encoder, String path) throws IOException {
+        expectToken(schema, parser.currentToken(), path, JsonToken.START_OBJECT);
+        List<Schema.Field> fields = schema.getFields();
+        // Avro binary follows the schema field order: fields arriving ahead of their turn are encoded aside
+        byte[][] pendingFields = null;
+        int nextField = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldPath = path.isEmpty() ? parser.currentName() : path + "." + parser.currentName();
+            Schema.Field field = schema.getField(parser.currentName());
+            if (field == null) {
+                throw new AvroTypeException("Field '" + fieldPath + "' not known in schema '" + schema.getFullName() + "'");
+            }
+            parser.nextToken();
+            if (field.pos() < nextField || (pendingFields != null && pendingFields[field.pos()] != null)) {
+                throw new AvroTypeException("Field '" + fieldPath + "' is duplicated");
+            } else if (field.pos() == nextField) {
+                writeValue(field.schema(), parser, encoder, fieldPath);
+                nextField++;
+                while (pendingFields != null && nextField < fields.size() && pendingFields[nextField] != null) {
+                    encoder.writeFixed(pendingFields[nextField++]);
+                }
+            } else {
+                if (pendingFields == null) {
+                    pendingFields = new byte[fields.size()][];
+                }
+                pendingFields[field.pos()] = encodeAside(field.schema(), parser, fieldPath);
+            }
+        }
+        for (; nextField < fields.size(); nextField++) {
+            if (pendingFields != null && pendingFields[nextField] != null) {
+                encoder.writeFixed(pendingFields[nextField]);
+            } else {
+                writeMissingField(fields.get(nextField), encoder, path);
+            }
+        }
+    }
+
+    private static void writeMissingField(Schema.Field field, Encoder encoder, String path) throws IOException {
+        if (field.hasDefaultValue()) {
+            new GenericDatumWriter<>(field.schema()).write(GenericData.get().getDefaultValue(field), encoder);
+        } else if (field.schema().isNullable() && field.schema().isUnion()) {
+            encoder.writeIndex(field.schema().getIndexNamed(Schema.Type.NULL.getName()));
+            encoder.writeNull();
+        } else {
+            throw new AvroTypeException("Field '" + (path.isEmpty() ? field.name() : path + "." + field.name()) + "' is missing");
+        }
+    }
+
+    // Arrays and maps are written as a single block (item count + items) followed by an empty block
+    private static void writeArray(Schema schema, JsonParser parser, Encoder encoder, String path) throws IOException {
+        expectToken(schema, parser.currentToken(), path, JsonToken.START_ARRAY);
+        ByteArrayOutputStream items = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        BinaryEncoder itemEncoder = ENCODER_FACTORY.directBinaryEncoder(items, null);
+        long count = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            writeValue(schema.getElementType(), parser, itemEncoder, path + "[" + count + "]");
+            count++;
+        }
+        writeBlock(encoder, count, items);
+    }
+
+    private static void writeMap(Schema schema, JsonParser parser, Encoder encoder, String path) throws IOException {
+        expectToken(schema, parser.currentToken(), path, JsonToken.START_OBJECT);
+        ByteArrayOutputStream entries = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        BinaryEncoder entryEncoder = ENCODER_FACTORY.directBinaryEncoder(entries, null);
+        long count = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            parser.nextToken();
+            entryEncoder.writeString(key);
+            writeValue(schema.getValueType(), parser, entryEncoder, path + "[" + key + "]");
+            count++;
+        }
+        writeBlock(encoder, count, entries);
+    }
+
+    private static void writeBlock(Encoder encoder, long count, ByteArrayOutputStream items) throws IOException {
+        if (count > 0) {
+            encoder.writeLong(count);
+            encoder.writeFixed(items.toByteArray());
+        }
+        encoder.writeLong(0);
+    }
+
+    private static byte[] encodeAside(Schema schema, JsonParser parser, String path) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        BinaryEncoder encoder = ENCODER_FACTORY.directBinaryEncoder(out, null);
+        writeValue(schema, parser, encoder, path);
+        return out.toByteArray();
+    }
+
+    private static int resolveUnionBranch(Schema union, JsonParser parser, String path) throws IOException {
+        List<Schema.Type> candidates = switch (parser.currentToken()) {
+            case VALUE_NULL -> List.of(Schema.Type.NULL);
+            case VALUE_TRUE, VALUE_FALSE -> List.of(Schema.Type.BOOLEAN);
+            case VALUE_NUMBER_INT -> parser.getNumberType() == JsonParser.NumberType.INT
+                    ? List.of(Schema.Type.INT, Schema.Type.LONG, Schema.Type.DOUBLE, Schema.Type.FLOAT)
+                    : List.of(Schema.Type.LONG, Schema.Type.DOUBLE, Schema.Type.FLOAT);
+            case VALUE_NUMBER_FLOAT -> List.of(Schema.Type.DOUBLE, Schema.Type.FLOAT);
+            case VALUE_STRING -> List.of(Schema.Type.STRING, Schema.Type.ENUM, Schema.Type.BYTES, Schema.Type.FIXED, Schema.Type.LONG, Schema.Type.INT);
+            case START_OBJECT -> List.of(Schema.Type.RECORD, Schema.Type.MAP);
+            case START_ARRAY -> List.of(Schema.Type.ARRAY);
+            default -> List.of();
+        };
+        List<Schema> branches = union.getTypes();
+        for (Schema.Type candidate : candidates) {
+            for (int i = 0; i < branches.size(); i++) {
+                Schema branch = branches.get(i);
+                if (branch.getType() == candidate && acceptsToken(branch, parser)) {
+                    return i;
+                }
+            }
+        }
+        throw typeError(union, path, parser.currentToken().name());
+    }
+
+    private static boolean acceptsToken(Schema branch, JsonParser parser) throws IOException {
+        return switch (branch.getType()) {
+            case ENUM -> branch.hasEnumSymbol(parser.getText());
+            // Strings only go into numbers through date/time logical types
+            case INT, LONG -> parser.currentToken() != JsonToken.VALUE_STRING || branch.getLogicalType() != null;
+            default -> true;
+        };
+    }
+
+    private static int readInt(Schema schema, JsonParser parser, String path) throws IOException {
+        LogicalType logicalType = schema.getLogicalType();
+        if (parser.currentToken() == JsonToken.VALUE_STRING && logicalType instanceof LogicalTypes.Date) {
+            return (int) parseLogicalValue(schema, path, parser.getText(), LocalDate::parse).toEpochDay();
+        } else if (parser.currentToken() == JsonToken.VALUE_STRING && logicalType instanceof LogicalTypes.TimeMillis) {
+            return (int) (parseLogicalValue(schema, path, parser.getText(), LocalTime::parse).toNanoOfDay() / 1_000_000);
+        }
+        expectToken(schema, parser.currentToken(), path, JsonToken.VALUE_NUMBER_INT);
+        if (parser.getNumberType() != JsonParser.NumberType.INT) {
+            throw typeError(schema, path, "out of range value " + parser.getText());
+        }
+        return parser.getIntValue();
+    }
+
+    private static long readLong(Schema schema, JsonParser parser, String path) throws IOException {
+        LogicalType logicalType = schema.getLogicalType();
+        if (parser.currentToken() == JsonToken.VALUE_STRING && logicalType instanceof LogicalTypes.TimestampMillis) {
+            return parseLogicalValue(schema, path, parser.getText(), Instant::parse).toEpochMilli();
+        } else if (parser.currentToken() == JsonToken.VALUE_STRING && logicalType instanceof LogicalTypes.TimestampMicros) {
+            return ChronoUnit.MICROS.between(Instant.EPOCH, parseLogicalValue(schema, path, parser.getText(), Instant::parse));
+        } else if (parser.currentToken() == JsonToken.VALUE_STRING && logicalType instanceof LogicalTypes.TimeMicros) {
+            return parseLogicalValue(schema, path, parser.getText(), LocalTime::parse).toNanoOfDay() / 1_000;
+        }
+        expectToken(schema, parser.currentToken(), path, JsonToken.VALUE_NUMBER_INT);
+        if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+            throw typeError(schema, path, "out of range value " + parser.getText());
+        }
+        return parser.getLongValue();
+    }
+
+    private static double readDouble(Schema schema, JsonParser parser, String path) throws IOException {
+        expectToken(schema, parser.currentToken(), path, JsonToken.VALUE_NUMBER_INT, JsonToken.VALUE_NUMBER_FLOAT);
+        return parser.getDoubleValue();
+    }
+
+    private static byte[] readBytes(Schema schema, JsonParser parser, String path) throws IOException {
+        if (schema.getLogicalType() instanceof LogicalTypes.Decimal decimal) {
+            expectToken(schema, parser.currentToken(), path, JsonToken.VALUE_NUMBER_INT, JsonToken.VALUE_NUMBER_FLOAT, JsonToken.VALUE_STRING);
+            BigDecimal value = parseLogicalValue(schema, path, parser.getText(), BigDecimal::new);
+            byte[] unscaled = parseLogicalValue(schema, path, value, v -> v.setScale(decimal.getScale(), RoundingMode.UNNECESSARY))
+                    .unscaledValue()
+                    .toByteArray();
+            return schema.getType() == Schema.Type.FIXED ? signExtend(schema, path, unscaled) : unscaled;
+        }
+        // Same convention as the Avro JSON encoding: each character holds one byte
+        expectToken(schema, parser.currentToken(), path, JsonToken.VALUE_STRING);
+        return parser.getText().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] signExtend(Schema schema, String path, byte[] unscaled) {
+        int fixedSize = schema.getFixedSize();
+        if (unscaled.length > fixedSize) {
+            throw typeError(schema, path, "decimal needing " + unscaled.length + " bytes");
+        }
+        byte[] value = new byte[fixedSize];
+        Arrays.fill(value, 0, fixedSize - unscaled.length, (byte) (unscaled[0] < 0 ? 0xFF : 0x00));
+        System.arraycopy(unscaled, 0, value, fixedSize - unscaled.length, unscaled.length);
+        return value;
+    }
+
+    private static void expectToken(Schema schema, JsonToken token, String path, JsonToken... expectedTokens) {
+        for (JsonToken expectedToken : expectedTokens) {
+            if (token == expectedToken) {
+                return;
+            }
+        }
+        throw typeError(schema, path, String.valueOf(token));
+    }
+
+    private static <I, O> O parseLogicalValue(Schema schema, String path, I value, LogicalValueParser<I, O> parser) {
+        try {
+            return parser.parse(value);
+        } catch (DateTimeParseException | ArithmeticException | IllegalArgumentException e) {
+            throw typeError(schema, path, "'" + value + "'");
+        }
+    }
+
+    private static AvroTypeException typeError(Schema schema, String path, String found) {
+        String type = schema.getLogicalType() != null ? schema.getLogicalType().getName() : schema.getType().getName();
+        return new AvroTypeException("Field '" + path + "' expects " + type + " but got " + found);
+    }
+
+    @FunctionalInterface
+    private interface LogicalValueParser<I, O> {
+        O parse(I value);
+    }
+}
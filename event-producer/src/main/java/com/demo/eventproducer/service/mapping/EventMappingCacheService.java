@@ -0,0 +1,87 @@
+package com.demo.eventproducer.service.mapping;
+
+import com.demo.eventproducer.model.EventSchemaModel;
+import com.demo.eventproducer.repository.EventSchemaRepository;
+import com.demo.eventproducer.service.schema.EventSchemaCacheService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+// Near-cache of the "EventMapping" hashes: entries are evicted on every instance when a mapping is saved.
+// The schema of a mapping is checked against the schema registry subject when it is saved and loaded.
+@Service
+public class EventMappingCacheService {
+
+    public static final String INVALIDATION_CHANNEL = "EventMapping:invalidation";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventMappingCacheService.class);
+    private static final String CACHE_NAME = "event-mapping";
+
+    private final EventSchemaRepository eventSchemaRepository;
+    private final EventSchemaCacheService schemaCacheService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final LoadingCache<String, EventSchemaModel> mappingCache;
+
+    @Autowired
+    public EventMappingCacheService(EventSchemaRepository eventSchemaRepository,
+                                    EventSchemaCacheService schemaCacheService,
+                                    StringRedisTemplate stringRedisTemplate,
+                                    RedisMessageListenerContainer listenerContainer,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${mapping-cache.max-size}") long maxSize,
+                                    @Value("${mapping-cache.expire-after-write}") Duration expireAfterWrite) {
+        this.eventSchemaRepository = eventSchemaRepository;
+        this.schemaCacheService = schemaCacheService;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.mappingCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(expireAfterWrite) // Safety net if an invalidation message is missed
+                .recordStats()
+                .build(this::loadMapping);
+        CaffeineCacheMetrics.monitor(meterRegistry, mappingCache, CACHE_NAME);
+        listenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public Optional<EventSchemaModel> getMapping(String eventName) {
+        return Optional.ofNullable(mappingCache.get(eventName));
+    }
+
+    public void save(EventSchemaModel mapping) {
+        schemaCacheService.checkSubject(mapping.schemaId());
+        eventSchemaRepository.save(mapping);
+        mappingCache.invalidate(mapping.id());
+        stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, mapping.id());
+    }
+
+    // PRIVATE METHODS
+
+    // Mappings saved before the check existed, or whose schema moved on the registry, fail here instead of producing
+    // events that consumers cannot resolve
+    private EventSchemaModel loadMapping(String eventName) {
+        EventSchemaModel mapping = eventSchemaRepository.findById(eventName).orElse(null);
+        if (mapping != null) {
+            schemaCacheService.checkSubject(mapping.schemaId());
+        }
+        return mapping;
+    }
+
+    private void onInvalidation(Message message, byte[] pattern) {
+        String eventName = new String(message.getBody(), StandardCharsets.UTF_8);
+        LOGGER.info("Mapping of event '{}' updated / Evicting it from cache", eventName);
+        mappingCache.invalidate(eventName);
+    }
+}
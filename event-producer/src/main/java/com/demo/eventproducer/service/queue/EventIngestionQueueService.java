@@ -0,0 +1,129 @@
+package com.demo.eventproducer.service.queue;
+
+import com.demo.eventproducer.service.EventProducerService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Bounded buffer between the HTTP layer and the Kafka producer: events are accepted right away and sent by workers
+@Service
+public class EventIngestionQueueService {
+
+    private record PendingEvent(String messageKey, String eventName, String eventData, long enqueuedAtNanos) {}
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventIngestionQueueService.class);
+    private static final long QUEUE_POLL_TIMEOUT_MS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10000;
+
+    private final EventProducerService producerService;
+    private final boolean enabled;
+    private final BlockingQueue<PendingEvent> queue;
+    private final ExecutorService workers;
+    private final Timer enqueueTimer;
+    private final Timer queueWaitTimer;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    private volatile boolean running;
+
+    @Autowired
+    public EventIngestionQueueService(EventProducerService producerService,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${ingestion-queue.enabled}") boolean enabled,
+                                      @Value("${ingestion-queue.capacity}") int capacity,
+                                      @Value("${ingestion-queue.workers}") int workerCount) {
+        this.producerService = producerService;
+        this.enabled = enabled;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.enqueueTimer = Timer.builder("event.ingestion.enqueue").register(meterRegistry);
+        this.queueWaitTimer = Timer.builder("event.ingestion.queue.wait").register(meterRegistry);
+        this.droppedCounter = Counter.builder("event.ingestion.dropped").register(meterRegistry);
+        this.failedCounter = Counter.builder("event.ingestion.failed").register(meterRegistry);
+        Gauge.builder("event.ingestion.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("event.ingestion.queue.capacity", () -> capacity).register(meterRegistry);
+
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread workerThread = new Thread(runnable, "event-ingestion-worker-" + workerIndex.getAndIncrement());
+            workerThread.setDaemon(true);
+            return workerThread;
+        });
+        this.running = enabled;
+        if (enabled) {
+            for (int i = 0; i < workerCount; i++) {
+                workers.submit(this::drainQueue);
+            }
+            LOGGER.info("Ingestion queue started with a capacity of {} events and {} workers", capacity, workerCount);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns false when the queue is full: the event is dropped and the client shall retry later
+    public boolean offer(String messageKey, String eventName, String eventData) {
+        long start = System.nanoTime();
+        boolean accepted = queue.offer(new PendingEvent(messageKey, eventName, eventData, start));
+        enqueueTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!accepted) {
+            droppedCounter.increment();
+        }
+        return accepted;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Workers drain what is left in the queue before the producer gets closed
+        running = false;
+        workers.shutdown();
+        if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            LOGGER.warn("Ingestion queue not drained on shutdown: {} events lost", queue.size());
+            workers.shutdownNow();
+        }
+    }
+
+    // PRIVATE METHODS
+
+    private void drainQueue() {
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEvent event = queue.poll(QUEUE_POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    queueWaitTimer.record(System.nanoTime() - event.enqueuedAtNanos(), TimeUnit.NANOSECONDS);
+                    sendEvent(event);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOGGER.error("Error occurred while draining ingestion queue", e);
+            }
+        }
+    }
+
+    private void sendEvent(PendingEvent event) {
+        // The record is built and handed to the producer on the worker thread, which blocks when the producer buffer is full
+        producerService.send(event.messageKey(), event.eventName(), event.eventData())
+                .subscribe(
+                        metadata -> LOGGER.debug("Event '{}' sent with key '{}'", event.eventName(), event.messageKey()),
+                        e -> {
+                            failedCounter.increment();
+                            LOGGER.error("Error while sending queued event '{}' with key '{}'", event.eventName(), event.messageKey(), e);
+                        }
+                );
+    }
+}
@@ -0,0 +1,88 @@
+package com.demo.eventproducer.service.schema;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.CachedSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.apache.avro.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.stream.schema.client.SchemaRegistryClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Parsed Avro schemas keyed by schema registry ID: hit/miss/load metrics are exposed as "cache.*{cache=event-schema}".
+// Events are encoded with the schema ID of their mapping, which must be the one registered for the subject of the
+// schema ("<namespace>.<name>", RecordNameStrategy of the consumers): "checkSubject" enforces it.
+@Service
+public class EventSchemaCacheService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventSchemaCacheService.class);
+    private static final String CACHE_NAME = "event-schema";
+
+    private final SchemaRegistryClient schemaRegistryClient;
+    private final CachedSchemaRegistryClient subjectRegistryClient;
+    private final LoadingCache<Integer, Schema> schemaCache;
+
+    @Autowired
+    public EventSchemaCacheService(SchemaRegistryClient schemaRegistryClient,
+                                   CachedSchemaRegistryClient subjectRegistryClient,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${schema-cache.max-size}") long maxSize,
+                                   @Value("${schema-cache.expire-after-access}") Duration expireAfterAccess,
+                                   @Value("${schema-cache.refresh-after-write}") Duration refreshAfterWrite) {
+        this.schemaRegistryClient = schemaRegistryClient;
+        this.subjectRegistryClient = subjectRegistryClient;
+        this.schemaCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterAccess(expireAfterAccess)
+                .refreshAfterWrite(refreshAfterWrite) // Stale schema is kept (and served) if the registry is down at refresh time
+                .recordStats()
+                .build(this::loadSchema);
+        CaffeineCacheMetrics.monitor(meterRegistry, schemaCache, CACHE_NAME);
+    }
+
+    public Schema getSchema(int schemaId) {
+        return schemaCache.get(schemaId);
+    }
+
+    public void invalidate(int schemaId) {
+        schemaCache.invalidate(schemaId);
+    }
+
+    // Lookups are cached by the registry client: only the first check of a schema reaches the registry
+    public void checkSubject(int schemaId) {
+        Schema schema = getSchema(schemaId);
+        String subject = schema.getFullName();
+        int registeredId;
+        try {
+            registeredId = subjectRegistryClient.getId(subject, new AvroSchema(schema));
+        } catch (RestClientException e) {
+            if (e.getStatus() == HttpStatus.NOT_FOUND.value()) {
+                throw new IllegalArgumentException("Schema '" + schemaId + "' is not registered under subject '" + subject + "'", e);
+            }
+            throw new IllegalStateException("Error while checking schema '" + schemaId + "' on schema registry", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error while checking schema '" + schemaId + "' on schema registry", e);
+        }
+        if (registeredId != schemaId) {
+            throw new IllegalArgumentException("Schema '" + schemaId + "' is registered under subject '" + subject + "' with ID '" + registeredId + "'");
+        }
+    }
+
+    // PRIVATE METHODS
+
+    private Schema loadSchema(Integer schemaId) {
+        String schemaDefinition = schemaRegistryClient.fetch(schemaId);
+        LOGGER.info("Schema '{}' fetched on schema registry", schemaId);
+        return new Schema.Parser().parse(schemaDefinition);
+    }
+}
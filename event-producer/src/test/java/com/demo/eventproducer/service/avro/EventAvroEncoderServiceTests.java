@@ -0,0 +1,77 @@
+package com.demo.eventproducer.service.avro;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventAvroEncoderServiceTests {
+
+	private static final Schema SCHEMA = new Schema.Parser().parse("""
+			{
+			  "type": "record", "name": "TestPayload", "namespace": "com.demo.schema",
+			  "fields": [
+			    {"name": "id", "type": "int"},
+			    {"name": "data", "type": "string"},
+			    {"name": "tags", "type": {"type": "array", "items": "string"}, "default": []},
+			    {"name": "comment", "type": ["null", "string"]},
+			    {"name": "createdAt", "type": {"type": "long", "logicalType": "timestamp-millis"}, "default": 0}
+			  ]
+			}""");
+
+	private final EventAvroEncoderService encoderService = new EventAvroEncoderService();
+
+	@Test
+	void encodesInConfluentWireFormat() throws IOException {
+		byte[] event = encoderService.encode(42, SCHEMA, "{\"id\": 1, \"data\": \"blablabla\"}");
+
+		assertThat(event[0]).isZero();
+		assertThat(ByteBuffer.wrap(event, 1, 4).getInt()).isEqualTo(42);
+		GenericRecord record = decode(event);
+		assertThat(record.get("id")).isEqualTo(1);
+		assertThat(record.get("data")).hasToString("blablabla");
+		assertThat((List<?>) record.get("tags")).isEmpty();
+		assertThat(record.get("comment")).isNull();
+		assertThat(record.get("createdAt")).isEqualTo(0L);
+	}
+
+	@Test
+	void encodesFieldsInSchemaOrder() throws IOException {
+		byte[] event = encoderService.encode(1, SCHEMA, """
+				{"createdAt": "2024-05-01T10:00:00Z", "tags": ["a", "b"], "comment": "hello", "data": "blablabla", "id": 2}""");
+
+		GenericRecord record = decode(event);
+		assertThat(record.get("id")).isEqualTo(2);
+		assertThat(record.get("data")).hasToString("blablabla");
+		assertThat((List<?>) record.get("tags")).extracting(Object::toString).containsExactly("a", "b");
+		assertThat(record.get("comment")).hasToString("hello");
+		assertThat(record.get("createdAt")).isEqualTo(1714557600000L);
+	}
+
+	@Test
+	void rejectsInvalidEvents() {
+		assertThatThrownBy(() -> encoderService.encode(1, SCHEMA, "{\"id\": \"1\", \"data\": \"blablabla\"}"))
+				.isInstanceOf(AvroTypeException.class)
+				.hasMessageContaining("'id'");
+		assertThatThrownBy(() -> encoderService.encode(1, SCHEMA, "{\"id\": 1}"))
+				.isInstanceOf(AvroTypeException.class)
+				.hasMessageContaining("'data' is missing");
+		assertThatThrownBy(() -> encoderService.encode(1, SCHEMA, "{\"id\": 1, \"data\": \"blablabla\", \"unknown\": true}"))
+				.isInstanceOf(AvroTypeException.class)
+				.hasMessageContaining("'unknown' not known");
+	}
+
+	private static GenericRecord decode(byte[] event) throws IOException {
+		return new GenericDatumReader<GenericRecord>(SCHEMA)
+				.read(null, DecoderFactory.get().binaryDecoder(event, 5, event.length - 5, null));
+	}
+}
@@ -1,15 +1,22 @@
 package com.demo.eventreader.controller;
 
 import com.demo.eventreader.model.EventPayloadModel;
+import com.demo.eventreader.model.EventReadOrdering;
 import com.demo.eventreader.service.EventReaderService;
 import com.demo.eventreader.service.EventSourceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 import java.util.Optional;
@@ -17,8 +24,14 @@ import java.util.Optional;
 @RestController
 public class EventReaderController {
 
-    public record EventReadRequest(String clientName, String eventName, Long timestamp, int count) {}
-    public record EventReadResponse(int count, List<EventPayloadModel> data) {}
+    // "maxWaitMs": longest time to wait for events when less than "count" are available (10 seconds by default)
+    // "ordering": POLL (default, best throughput), FAIR (round robin between partitions) or TIMESTAMP
+    public record EventReadRequest(String clientName, String eventName, Long timestamp, int count, Long maxWaitMs, EventReadOrdering ordering) {}
+    // "lag": number of events left to read after this page (-1 if unknown)
+    public record EventReadResponse(int count, List<EventPayloadModel> data, long lag) {}
+    // "cursor": token returned by the previous page (none for the first page, read from "timestamp" or from the beginning)
+    public record EventCursorReadRequest(String eventName, String cursor, Long timestamp, int count, Long maxWaitMs, EventReadOrdering ordering) {}
+    public record EventCursorReadResponse(int count, List<EventPayloadModel> data, String cursor, long lag) {}
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventReaderController.class);
 
@@ -32,19 +45,70 @@ public class EventReaderController {
         this.eventSourceService = eventSourceService;
     }
 
+    // Kafka and Redis calls are blocking: kept off the event loop (on virtual threads with the "java21" profile)
     @GetMapping("/read")
-    public ResponseEntity<EventReadResponse> readEvents(@RequestBody EventReadRequest readRequest) {
+    public Mono<ResponseEntity<EventReadResponse>> readEvents(@RequestBody EventReadRequest readRequest) {
+        return Mono.fromCallable(() -> doReadEvents(readRequest))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Stateless paging: no consumer group nor commit on the brokers, the client keeps its position through the cursor
+    @GetMapping("/read/cursor")
+    public Mono<ResponseEntity<EventCursorReadResponse>> readEventsFromCursor(@RequestBody EventCursorReadRequest readRequest) {
+        return Mono.fromCallable(() -> doReadEventsFromCursor(readRequest))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    // Large pages: events are written as they are polled (NDJSON or SSE depending on the "Accept" header)
+    @GetMapping(value = "/read/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<EventPayloadModel> streamEvents(@RequestBody EventReadRequest readRequest) {
+        String consumerGroupId = readRequest.clientName + "_" + readRequest.eventName;
+        return Mono.fromCallable(() -> eventSourceService.getEventSource(readRequest.eventName))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(topicNameFound -> {
+                    if (topicNameFound.isEmpty()) {
+                        LOGGER.warn("Event with name '{}' has no associated topic", readRequest.eventName);
+                        return Flux.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
+                    }
+                    LOGGER.info("[{}] Streaming up to {} events on '{}'", readRequest.clientName, readRequest.count, topicNameFound.get());
+                    return eventReaderService.streamEvents(consumerGroupId, topicNameFound.get(), readRequest.timestamp, readRequest.count, readRequest.maxWaitMs, readRequest.ordering);
+                });
+    }
+
+    // PRIVATE METHODS
+
+    private ResponseEntity<EventReadResponse> doReadEvents(EventReadRequest readRequest) {
         try {
             String consumerGroupId = readRequest.clientName + "_" + readRequest.eventName;
             Optional<String> topicNameFound = eventSourceService.getEventSource(readRequest.eventName);
             if (topicNameFound.isPresent()) {
-                EventReaderService.EventPaginationResult res = eventReaderService.readEvents(consumerGroupId, topicNameFound.get(), readRequest.timestamp, readRequest.count);
+                EventReaderService.EventPaginationResult res = eventReaderService.readEvents(consumerGroupId, topicNameFound.get(), readRequest.timestamp, readRequest.count, readRequest.maxWaitMs, readRequest.ordering);
                 LOGGER.info("[{}] Read {} events on '{}'", readRequest.clientName, res.data().size(), topicNameFound.get());
-                return ResponseEntity.ok(new EventReadResponse(res.data().size(), res.data()));
+                return ResponseEntity.ok(new EventReadResponse(res.data().size(), res.data(), res.lag()));
+            } else {
+                LOGGER.warn("Event with name '{}' has no associated topic", readRequest.eventName);
+                return ResponseEntity.notFound().build();
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error while reading events from stream '{}'", readRequest.eventName, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private ResponseEntity<EventCursorReadResponse> doReadEventsFromCursor(EventCursorReadRequest readRequest) {
+        try {
+            Optional<String> topicNameFound = eventSourceService.getEventSource(readRequest.eventName);
+            if (topicNameFound.isPresent()) {
+                EventReaderService.EventCursorPaginationResult res = eventReaderService.readEventsFromCursor(topicNameFound.get(), readRequest.cursor, readRequest.timestamp, readRequest.count, readRequest.maxWaitMs, readRequest.ordering);
+                LOGGER.info("Read {} events on '{}' from cursor", res.data().size(), topicNameFound.get());
+                return ResponseEntity.ok(new EventCursorReadResponse(res.data().size(), res.data(), res.cursor(), res.lag()));
             } else {
                 LOGGER.warn("Event with name '{}' has no associated topic", readRequest.eventName);
                 return ResponseEntity.notFound().build();
             }
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Invalid cursor read request on stream '{}': {}", readRequest.eventName, e.getMessage());
+            return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             LOGGER.error("Error while reading events from stream '{}'", readRequest.eventName, e);
             return ResponseEntity.internalServerError().build();
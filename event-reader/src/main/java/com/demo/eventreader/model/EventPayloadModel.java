@@ -1,6 +1,10 @@
 package com.demo.eventreader.model;
 
-import java.util.Map;
+import com.demo.eventreader.service.avro.EventRecordJsonSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.swagger.v3.oas.annotations.media.Schema;
+import org.apache.avro.generic.GenericRecord;
 
 // Use CloudEvents model
-public record EventPayloadModel(Map<String, String> fields) {}
+// The Avro record is kept as read from Kafka, and only converted to JSON when the response is written
+public record EventPayloadModel(@JsonSerialize(using = EventRecordJsonSerializer.class) @Schema(type = "object") GenericRecord fields) {}
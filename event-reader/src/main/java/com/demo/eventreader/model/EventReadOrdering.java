@@ -0,0 +1,11 @@
+package com.demo.eventreader.model;
+
+// Order of the events of a page read on several partitions
+public enum EventReadOrdering {
+    // As returned by the Kafka polls: best throughput, but a hot partition can fill whole pages
+    POLL,
+    // Round robin between the partitions having events to read
+    FAIR,
+    // Merged on the record timestamps
+    TIMESTAMP
+}
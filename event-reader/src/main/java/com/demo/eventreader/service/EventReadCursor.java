@@ -0,0 +1,207 @@
+package com.demo.eventreader.service;
+
+import com.demo.eventreader.model.EventPayloadModel;
+import com.demo.eventreader.model.EventReadOrdering;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// One page read on a configured consumer, one poll at a time (not thread-safe, like the consumer itself).
+// Long poll: the page ends once "numberOfEventsToRead" events are read, or as soon as the end of the log is reached
+// with some events read, or after "readTimeoutMs" (waiting for new events if there were none left).
+// Except for the POLL ordering, polled records are buffered per partition and merged once every partition with events
+// to read has some buffered, a partition being paused as soon as it has enough buffered to fill the page alone.
+class EventReadCursor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EventReadCursor.class);
+    private static final long KAFKA_POLL_TIMEOUT_MS = 100;
+
+    private final KafkaConsumer<String, GenericRecord> kafkaConsumer;
+    private final int numberOfEventsToRead;
+    private final long readTimeoutMs;
+    private final EventReadOrdering ordering;
+    private final Map<TopicPartition, Deque<ConsumerRecord<String, GenericRecord>>> buffers;
+    private final StopWatch stopWatch;
+    private final Map<TopicPartition, OffsetAndMetadata> readOffsets;
+    private final Map<TopicPartition, Long> unreadOffsets;
+    private int numberOfEventsReadSoFar;
+    private int pollCount;
+    private boolean endOfLog;
+
+    EventReadCursor(KafkaConsumer<String, GenericRecord> kafkaConsumer, int numberOfEventsToRead, long readTimeoutMs, EventReadOrdering ordering) {
+        this.kafkaConsumer = kafkaConsumer;
+        this.numberOfEventsToRead = numberOfEventsToRead;
+        this.readTimeoutMs = readTimeoutMs;
+        this.ordering = ordering != null ? ordering : EventReadOrdering.POLL;
+        this.buffers = new LinkedHashMap<>();
+        this.stopWatch = StopWatch.createStarted();
+        this.readOffsets = new HashMap<>();
+        this.unreadOffsets = new HashMap<>();
+    }
+
+    boolean hasNext() {
+        return numberOfEventsReadSoFar < numberOfEventsToRead
+                && !(endOfLog && numberOfEventsReadSoFar > 0)
+                && stopWatch.getTime(TimeUnit.MILLISECONDS) < readTimeoutMs;
+    }
+
+    // Events of the next poll, possibly none
+    List<EventPayloadModel> next() {
+        long remainingMs = readTimeoutMs - stopWatch.getTime(TimeUnit.MILLISECONDS);
+        ConsumerRecords<String, GenericRecord> records = kafkaConsumer.poll(Duration.ofMillis(Math.max(1, Math.min(KAFKA_POLL_TIMEOUT_MS, remainingMs))));
+        pollCount++;
+        List<EventPayloadModel> events = new ArrayList<>(records.count());
+        if (ordering == EventReadOrdering.POLL) {
+            for (ConsumerRecord<String, GenericRecord> record : records) {
+                TopicPartition topicPartition = new TopicPartition(record.topic(), record.partition());
+                if (numberOfEventsReadSoFar >= numberOfEventsToRead) {
+                    // Fetched but not returned: the consumer will start again from there for the next page
+                    unreadOffsets.putIfAbsent(topicPartition, record.offset());
+                    continue;
+                }
+                addEvent(events, topicPartition, record);
+            }
+            endOfLog = isEndOfLog();
+        } else {
+            for (TopicPartition topicPartition : records.partitions()) {
+                Deque<ConsumerRecord<String, GenericRecord>> buffer = buffers.computeIfAbsent(topicPartition, tp -> new ArrayDeque<>());
+                buffer.addAll(records.records(topicPartition));
+                if (buffer.size() >= numberOfEventsToRead - numberOfEventsReadSoFar) {
+                    kafkaConsumer.pause(List.of(topicPartition)); // Other partitions get the next fetches
+                }
+            }
+            endOfLog = isEndOfLog();
+            if (endOfLog || isMergeable() || readTimeoutMs - stopWatch.getTime(TimeUnit.MILLISECONDS) <= KAFKA_POLL_TIMEOUT_MS) {
+                merge(events);
+            }
+        }
+        return events;
+    }
+
+    // Offsets following the events returned so far
+    Map<TopicPartition, OffsetAndMetadata> getReadOffsets() {
+        return Map.copyOf(readOffsets);
+    }
+
+    int getPollCount() {
+        return pollCount;
+    }
+
+    // Leaves the consumer positioned right after the last returned event, and returns the events left to read
+    long close() {
+        buffers.forEach((topicPartition, buffer) -> {
+            if (!buffer.isEmpty()) {
+                unreadOffsets.putIfAbsent(topicPartition, buffer.peekFirst().offset());
+            }
+        });
+        unreadOffsets.forEach(kafkaConsumer::seek);
+        kafkaConsumer.resume(kafkaConsumer.paused()); // The pooled consumer fetches every partition on the next read
+        stopWatch.stop();
+        long lag = computeLag();
+        LOGGER.debug("Events read: {} in {} ms, lag: {}", numberOfEventsReadSoFar, stopWatch.getTime(TimeUnit.MILLISECONDS), lag);
+        return lag;
+    }
+
+    // PRIVATE METHODS
+
+    private void addEvent(List<EventPayloadModel> events, TopicPartition topicPartition, ConsumerRecord<String, GenericRecord> record) {
+        LOGGER.debug("Key: {}, partition: {}, offset: {}", record.key(), record.partition(), record.offset());
+        events.add(new EventPayloadModel(record.value()));
+        readOffsets.put(topicPartition, new OffsetAndMetadata(record.offset() + 1));
+        numberOfEventsReadSoFar++;
+    }
+
+    // Every partition has buffered records, or nothing left to read (as far as the last fetch responses tell)
+    private boolean isMergeable() {
+        for (TopicPartition topicPartition : kafkaConsumer.assignment()) {
+            Deque<ConsumerRecord<String, GenericRecord>> buffer = buffers.get(topicPartition);
+            if (buffer == null || buffer.isEmpty()) {
+                OptionalLong lag = kafkaConsumer.currentLag(topicPartition);
+                if (lag.isEmpty() || lag.getAsLong() > 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void merge(List<EventPayloadModel> events) {
+        List<TopicPartition> partitions = new ArrayList<>(buffers.keySet());
+        int next = 0;
+        while (numberOfEventsReadSoFar < numberOfEventsToRead) {
+            TopicPartition selected = null;
+            if (ordering == EventReadOrdering.FAIR) {
+                for (int i = 0; i < partitions.size() && selected == null; i++) {
+                    TopicPartition topicPartition = partitions.get((next + i) % partitions.size());
+                    if (!buffers.get(topicPartition).isEmpty()) {
+                        selected = topicPartition;
+                        next = (next + i + 1) % partitions.size();
+                    }
+                }
+            } else {
+                long oldestTimestamp = Long.MAX_VALUE;
+                for (TopicPartition topicPartition : partitions) {
+                    ConsumerRecord<String, GenericRecord> head = buffers.get(topicPartition).peekFirst();
+                    if (head != null && head.timestamp() < oldestTimestamp) {
+                        selected = topicPartition;
+                        oldestTimestamp = head.timestamp();
+                    }
+                }
+            }
+            if (selected == null) {
+                return; // Buffers drained
+            }
+            addEvent(events, selected, buffers.get(selected).pollFirst());
+        }
+    }
+
+    // Based on the lag known from the last fetch responses: no broker call
+    private boolean isEndOfLog() {
+        Set<TopicPartition> assignment = kafkaConsumer.assignment();
+        if (assignment.isEmpty()) {
+            return false; // Group join not done yet
+        }
+        for (TopicPartition topicPartition : assignment) {
+            OptionalLong lag = kafkaConsumer.currentLag(topicPartition);
+            if (lag.isEmpty() || lag.getAsLong() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long computeLag() {
+        try {
+            Set<TopicPartition> assignment = kafkaConsumer.assignment();
+            if (assignment.isEmpty()) {
+                return -1;
+            }
+            long lag = 0;
+            for (Map.Entry<TopicPartition, Long> endOffset : kafkaConsumer.endOffsets(assignment).entrySet()) {
+                lag += Math.max(0, endOffset.getValue() - kafkaConsumer.position(endOffset.getKey()));
+            }
+            return lag;
+        } catch (Exception e) {
+            LOGGER.warn("Error while computing lag: {}", e.getMessage());
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.demo.eventreader.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Opaque cursor given to the clients of "/read/cursor": the topic and the next offset to read on each partition,
+// encoded as base64url("v1;<topic>;<partition>:<offset>,...")
+record EventReadToken(String topic, Map<Integer, Long> offsets) {
+
+    private static final String VERSION = "v1";
+
+    String encode() {
+        StringBuilder builder = new StringBuilder(VERSION).append(';').append(topic).append(';');
+        new TreeMap<>(offsets).forEach((partition, offset) -> builder.append(partition).append(':').append(offset).append(','));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static EventReadToken decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(";", -1);
+            if (parts.length != 3 || !VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("Unknown cursor format");
+            }
+            Map<Integer, Long> offsets = new TreeMap<>();
+            for (String partitionOffset : parts[2].split(",")) {
+                if (!partitionOffset.isEmpty()) {
+                    String[] values = partitionOffset.split(":");
+                    offsets.put(Integer.parseInt(values[0]), Long.parseLong(values[1]));
+                }
+            }
+            return new EventReadToken(parts[1], offsets);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor '" + token + "'", e);
+        }
+    }
+}
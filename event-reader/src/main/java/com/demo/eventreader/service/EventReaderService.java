@@ -1,69 +1,142 @@
 package com.demo.eventreader.service;
 
 import com.demo.eventreader.model.EventPayloadModel;
-import com.demo.eventreader.service.factory.KafkaConsumerFactory;
-import org.apache.avro.Schema;
+import com.demo.eventreader.model.EventReadOrdering;
+import com.demo.eventreader.service.index.EventTimestampIndexService;
+import com.demo.eventreader.service.pool.KafkaConsumerPoolService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.avro.generic.GenericRecord;
-import org.apache.commons.lang3.time.StopWatch;
-import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.TopicPartition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SynchronousSink;
+import reactor.core.scheduler.Schedulers;
 
-import java.time.Duration;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 @Service
 public class EventReaderService {
 
-    public record EventPaginationResult(List<EventPayloadModel> data) {}
+    // "lag" is the number of events left after this page, -1 if unknown
+    public record EventPaginationResult(List<EventPayloadModel> data, long lag) {}
+    // "cursor" is the token to give for the next page
+    public record EventCursorPaginationResult(List<EventPayloadModel> data, String cursor, long lag) {}
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventReaderService.class);
-    private static final long READ_TIMEOUT_MS = 10000; // 10 seconds to fetch all reads
-    private static final long KAFKA_POLL_TIMEOUT_MS = 100;
+    private static final long READ_TIMEOUT_MS = 10000; // 10 seconds to fetch all reads, when the client gives no max wait
+    private static final long MAX_READ_TIMEOUT_MS = 30000;
 
-    private final KafkaConsumerFactory consumerFactory;
+    private final KafkaConsumerPoolService consumerPoolService;
+    private final EventTimestampIndexService timestampIndexService;
+    private final Timer commitSyncTimer;
+    private final Timer commitAsyncTimer;
+    private final DistributionSummary pollsPerPage;
 
     @Autowired
-    public EventReaderService(KafkaConsumerFactory consumerFactory) {
-        this.consumerFactory = consumerFactory;
+    public EventReaderService(KafkaConsumerPoolService consumerPoolService,
+                              EventTimestampIndexService timestampIndexService,
+                              MeterRegistry meterRegistry) {
+        this.consumerPoolService = consumerPoolService;
+        this.timestampIndexService = timestampIndexService;
+        this.commitSyncTimer = buildCommitTimer(meterRegistry, "sync");
+        this.commitAsyncTimer = buildCommitTimer(meterRegistry, "async");
+        this.pollsPerPage = DistributionSummary.builder("event.reader.polls")
+                .description("Kafka polls needed to read a page")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     // TODO: topic name information must come from a DB
-    public EventPaginationResult readEvents(String consumerGroupId, String topic, Long timestamp, int numberOfEventsToRead) {
-        EventPaginationResult res = new EventPaginationResult(new ArrayList<>());
-        try (KafkaConsumer<String, GenericRecord> kafkaConsumer = consumerFactory.buildKafkaListener(consumerGroupId)) {
+    public EventPaginationResult readEvents(String consumerGroupId, String topic, Long timestamp, int numberOfEventsToRead, Long maxWaitMs, EventReadOrdering ordering) {
+        EventPaginationResult res = new EventPaginationResult(new ArrayList<>(), -1);
+        KafkaConsumer<String, GenericRecord> kafkaConsumer = null;
+        try {
+            // The pooled consumer stays subscribed once the read is done, ready for the next page
+            kafkaConsumer = consumerPoolService.borrow(consumerGroupId);
             configureKafkaConsumer(kafkaConsumer, topic, timestamp);
-            res = readEvents(kafkaConsumer, numberOfEventsToRead);
-            kafkaConsumer.unsubscribe();
+            res = readEvents(kafkaConsumer, numberOfEventsToRead, computeReadTimeoutMs(maxWaitMs), ordering, true);
+            consumerPoolService.release(consumerGroupId, kafkaConsumer);
         } catch (Exception e) {
             LOGGER.error("Error while reading events for '{}' on topic '{}'", consumerGroupId, topic, e);
+            if (kafkaConsumer != null) {
+                consumerPoolService.invalidate(consumerGroupId, kafkaConsumer);
+            }
+        }
+        return res;
+    }
+
+    // Read without consumer group: the position comes from the cursor given by the client (or from the timestamp, or from
+    // the beginning of the topic without any), nothing is committed on the brokers
+    public EventCursorPaginationResult readEventsFromCursor(String topic, String cursor, Long timestamp, int numberOfEventsToRead, Long maxWaitMs, EventReadOrdering ordering) {
+        EventReadToken readToken = cursor != null ? EventReadToken.decode(cursor) : null;
+        if (readToken != null && !readToken.topic().equals(topic)) {
+            throw new IllegalArgumentException("Cursor '" + cursor + "' is not a cursor of topic '" + topic + "'");
+        }
+        EventCursorPaginationResult res = new EventCursorPaginationResult(new ArrayList<>(), cursor, -1);
+        KafkaConsumer<String, GenericRecord> kafkaReader = null;
+        try {
+            kafkaReader = consumerPoolService.borrowReader();
+            positionKafkaReader(kafkaReader, topic, readToken, timestamp);
+            EventPaginationResult page = readEvents(kafkaReader, numberOfEventsToRead, computeReadTimeoutMs(maxWaitMs), ordering, false);
+            res = new EventCursorPaginationResult(page.data(), buildReadToken(kafkaReader, topic).encode(), page.lag());
+            consumerPoolService.releaseReader(kafkaReader);
+        } catch (Exception e) {
+            LOGGER.error("Error while reading events from cursor on topic '{}'", topic, e);
+            if (kafkaReader != null) {
+                consumerPoolService.invalidateReader(kafkaReader);
+            }
         }
         return res;
     }
 
+    // Same read as a stream: the events are emitted poll after poll, without keeping the whole page in memory
+    public Flux<EventPayloadModel> streamEvents(String consumerGroupId, String topic, Long timestamp, int numberOfEventsToRead, Long maxWaitMs, EventReadOrdering ordering) {
+        return Flux.<List<EventPayloadModel>, EventReadStream>generate(
+                        () -> openStream(consumerGroupId, topic, timestamp, numberOfEventsToRead, maxWaitMs, ordering),
+                        (stream, sink) -> {
+                            pollStream(stream, sink);
+                            return stream;
+                        },
+                        this::closeStream)
+                .concatMapIterable(events -> events, 1)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
     // PRIVATE METHODS
 
-    private static void configureKafkaConsumer(KafkaConsumer<String, GenericRecord> kafkaConsumer, String topic, Long timestamp) {
+    private void configureKafkaConsumer(KafkaConsumer<String, GenericRecord> kafkaConsumer, String topic, Long timestamp) {
         if (timestamp != null && timestamp < System.currentTimeMillis()) {
             try {
+                kafkaConsumer.unsubscribe(); // Manual assignment and subscription are exclusive
+
                 configureKafkaConsumerUsingTimestamp(kafkaConsumer, topic, timestamp);
             } catch (Exception e) {
                 kafkaConsumer.unsubscribe();
                 LOGGER.warn("Error while configuring kafka consumer using timestamp / Switching to subscribe mode", e);
                 kafkaConsumer.subscribe(List.of(topic));
             }
-        } else {
+        } else if (!kafkaConsumer.subscription().equals(Set.of(topic))) {
+            // Pooled consumer not subscribed yet, or left assigned by a read from a timestamp
+            kafkaConsumer.unsubscribe();
             kafkaConsumer.subscribe(List.of(topic));
         }
     }
 
-    private static void configureKafkaConsumerUsingTimestamp(KafkaConsumer<String, GenericRecord> kafkaConsumer, String topic, Long timestamp) {
+    private void configureKafkaConsumerUsingTimestamp(KafkaConsumer<String, GenericRecord> kafkaConsumer, String topic, Long timestamp) {
         // Get the list of partitions
         List<PartitionInfo> partitionInfos = kafkaConsumer.partitionsFor(topic);
         // Transform PartitionInfo into TopicPartition
@@ -73,53 +146,160 @@ public class EventReaderService {
                 .toList();
         // Assign the consumer to these partitions
         kafkaConsumer.assign(topicPartitionList);
-        // Look for offsets based on timestamp
-        Map<TopicPartition, Long> partitionTimestampMap = topicPartitionList.stream()
-                .collect(Collectors.toMap(tp -> tp, tp -> timestamp));
-        Map<TopicPartition, OffsetAndTimestamp> partitionOffsetMap = kafkaConsumer.offsetsForTimes(partitionTimestampMap);
-        for (OffsetAndTimestamp offset : partitionOffsetMap.values()) {
-            if (Objects.isNull(offset)) {
-                throw new IllegalStateException("Fetched OffsetAndTimestamp object is null for timestamp '" + timestamp + "'");
+        seekToTimestamp(kafkaConsumer, topicPartitionList, timestamp);
+    }
+
+    // Offsets known by the timestamp index are not looked up on the brokers
+    private void seekToTimestamp(KafkaConsumer<String, GenericRecord> kafkaConsumer, List<TopicPartition> topicPartitions, long timestamp) {
+        Map<TopicPartition, Long> partitionTimestampMap = new HashMap<>();
+        for (TopicPartition topicPartition : topicPartitions) {
+            OptionalLong indexedOffset = timestampIndexService.lookup(topicPartition, timestamp);
+            if (indexedOffset.isPresent()) {
+                kafkaConsumer.seek(topicPartition, indexedOffset.getAsLong());
+            } else {
+                partitionTimestampMap.put(topicPartition, timestamp);
             }
         }
-        // Force the consumer to seek for those offsets
-        partitionOffsetMap.forEach((tp, offsetAndTimestamp) -> kafkaConsumer.seek(tp, offsetAndTimestamp.offset()));
+        if (partitionTimestampMap.isEmpty()) {
+            return;
+        }
+        kafkaConsumer.offsetsForTimes(partitionTimestampMap).forEach((tp, offsetAndTimestamp) -> {
+            if (offsetAndTimestamp != null) {
+                kafkaConsumer.seek(tp, offsetAndTimestamp.offset());
+                timestampIndexService.recordLookup(tp, timestamp, offsetAndTimestamp.offset(), offsetAndTimestamp.timestamp());
+            } else {
+                kafkaConsumer.seekToEnd(List.of(tp)); // No event after the timestamp on this partition
+            }
+        });
     }
 
-    private static EventPaginationResult readEvents(KafkaConsumer<String, GenericRecord> kafkaConsumer, int numberOfEventsToRead) {
-        List<EventPayloadModel> res = new ArrayList<>();
-        int numberOfEventsReadSoFar = 0;
-        StopWatch stopWatch = StopWatch.createStarted();
-        Map<TopicPartition, OffsetAndMetadata> currentOffsets = new HashMap<>();
-
-        // poll for new data
-        while (numberOfEventsReadSoFar < numberOfEventsToRead && stopWatch.getTime(TimeUnit.MILLISECONDS) < READ_TIMEOUT_MS) {
-            ConsumerRecords<String, GenericRecord> records = kafkaConsumer.poll(Duration.ofMillis(KAFKA_POLL_TIMEOUT_MS));
-            for (ConsumerRecord<String, GenericRecord> record : records) {
-                LOGGER.debug("Key: {}, partition: {}, offset: {}", record.key(), record.partition(), record.offset());
-                res.add(new EventPayloadModel(convertToMap(record.value())));
-                currentOffsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
-                numberOfEventsReadSoFar++;
-                if (numberOfEventsReadSoFar >= numberOfEventsToRead) {
-                    break;
+    private void positionKafkaReader(KafkaConsumer<String, GenericRecord> kafkaReader, String topic, EventReadToken readToken, Long timestamp) {
+        List<TopicPartition> topicPartitions = kafkaReader.partitionsFor(topic)
+                .stream()
+                .map(info -> new TopicPartition(topic, info.partition()))
+                .toList();
+        kafkaReader.assign(topicPartitions); // Replaces the assignment left by the previous read
+        if (readToken != null) {
+            for (TopicPartition topicPartition : topicPartitions) {
+                Long offset = readToken.offsets().get(topicPartition.partition());
+                if (offset != null) {
+                    kafkaReader.seek(topicPartition, offset);
+                } else {
+                    kafkaReader.seekToBeginning(List.of(topicPartition)); // Partition added after the cursor was given
                 }
             }
-            kafkaConsumer.commitSync(currentOffsets);
+        } else if (timestamp != null) {
+            seekToTimestamp(kafkaReader, topicPartitions, timestamp);
+        } else {
+            kafkaReader.seekToBeginning(topicPartitions);
         }
+    }
 
-        stopWatch.stop();
+    private static EventReadToken buildReadToken(KafkaConsumer<String, GenericRecord> kafkaReader, String topic) {
+        Map<Integer, Long> offsets = new HashMap<>();
+        for (TopicPartition topicPartition : kafkaReader.assignment()) {
+            offsets.put(topicPartition.partition(), kafkaReader.position(topicPartition));
+        }
+        return new EventReadToken(topic, offsets);
+    }
 
-        LOGGER.debug("Events read: {} in {} sec", numberOfEventsReadSoFar, stopWatch.getTime(TimeUnit.SECONDS));
+    // Offsets are tracked by the cursor and committed once for the whole page, not after each poll
+    private EventPaginationResult readEvents(KafkaConsumer<String, GenericRecord> kafkaConsumer, int numberOfEventsToRead, long readTimeoutMs, EventReadOrdering ordering, boolean commit) {
+        List<EventPayloadModel> res = new ArrayList<>();
+        EventReadCursor cursor = new EventReadCursor(kafkaConsumer, numberOfEventsToRead, readTimeoutMs, ordering);
+        while (cursor.hasNext()) {
+            res.addAll(cursor.next());
+        }
+        if (commit) {
+            commitSync(kafkaConsumer, cursor.getReadOffsets());
+        }
+        pollsPerPage.record(cursor.getPollCount());
+        return new EventPaginationResult(res, cursor.close());
+    }
+
+    private void commitSync(KafkaConsumer<String, GenericRecord> kafkaConsumer, Map<TopicPartition, OffsetAndMetadata> offsets) {
+        if (!offsets.isEmpty()) {
+            commitSyncTimer.record(() -> kafkaConsumer.commitSync(offsets));
+        }
+    }
+
+    private void commitAsync(KafkaConsumer<String, GenericRecord> kafkaConsumer, Map<TopicPartition, OffsetAndMetadata> offsets) {
+        long startNanos = System.nanoTime();
+        kafkaConsumer.commitAsync(offsets, (committed, e) -> {
+            if (e != null) {
+                LOGGER.warn("Error while committing offsets {}: {}", committed, e.getMessage());
+            } else {
+                commitAsyncTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
 
-        return new EventPaginationResult(res);
+    private EventReadStream openStream(String consumerGroupId, String topic, Long timestamp, int numberOfEventsToRead, Long maxWaitMs, EventReadOrdering ordering) throws Exception {
+        KafkaConsumer<String, GenericRecord> kafkaConsumer = consumerPoolService.borrow(consumerGroupId);
+        try {
+            configureKafkaConsumer(kafkaConsumer, topic, timestamp);
+        } catch (Exception e) {
+            consumerPoolService.invalidate(consumerGroupId, kafkaConsumer);
+            throw e;
+        }
+        return new EventReadStream(consumerGroupId, kafkaConsumer,
+                new EventReadCursor(kafkaConsumer, numberOfEventsToRead, computeReadTimeoutMs(maxWaitMs), ordering));
     }
 
-    private static Map<String, String> convertToMap(GenericRecord genericRecord) {
-        Map<String, String> values = new HashMap<>();
-        for (Schema.Field field : genericRecord.getSchema().getFields()) {
-            String value = genericRecord.get(field.name()).toString();
-            values.put(field.name(), value);
+    private void pollStream(EventReadStream stream, SynchronousSink<List<EventPayloadModel>> sink) {
+        // Checkpoint: the events handed downstream so far are committed once the next ones are asked for
+        Map<TopicPartition, OffsetAndMetadata> readOffsets = stream.cursor.getReadOffsets();
+        if (!readOffsets.equals(stream.committedOffsets)) {
+            commitAsync(stream.kafkaConsumer, readOffsets);
+            stream.committedOffsets = readOffsets;
+        }
+        if (stream.cursor.hasNext()) {
+            sink.next(stream.cursor.next()); // Possibly empty: the generator must emit on each call
+        } else {
+            commitSync(stream.kafkaConsumer, readOffsets); // Also completes the pending checkpoints
+            pollsPerPage.record(stream.cursor.getPollCount());
+            long lag = stream.cursor.close();
+            LOGGER.debug("Stream of '{}' done, lag: {}", stream.consumerGroupId, lag);
+            stream.completed = true;
+            sink.complete();
+        }
+    }
+
+    private void closeStream(EventReadStream stream) {
+        if (stream.completed) {
+            consumerPoolService.release(stream.consumerGroupId, stream.kafkaConsumer);
+        } else {
+            // Cancelled by the client or failed: events after the last checkpoint will be read again
+            LOGGER.info("Stream of '{}' interrupted", stream.consumerGroupId);
+            consumerPoolService.invalidate(stream.consumerGroupId, stream.kafkaConsumer);
+        }
+    }
+
+    private static long computeReadTimeoutMs(Long maxWaitMs) {
+        return maxWaitMs != null ? Math.min(Math.max(maxWaitMs, 0), MAX_READ_TIMEOUT_MS) : READ_TIMEOUT_MS;
+    }
+
+    private static Timer buildCommitTimer(MeterRegistry meterRegistry, String mode) {
+        return Timer.builder("event.reader.commit")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // PRIVATE CLASSES
+
+    private static class EventReadStream {
+
+        private final String consumerGroupId;
+        private final KafkaConsumer<String, GenericRecord> kafkaConsumer;
+        private final EventReadCursor cursor;
+        private Map<TopicPartition, OffsetAndMetadata> committedOffsets = Map.of();
+        private boolean completed;
+
+        private EventReadStream(String consumerGroupId, KafkaConsumer<String, GenericRecord> kafkaConsumer, EventReadCursor cursor) {
+            this.consumerGroupId = consumerGroupId;
+            this.kafkaConsumer = kafkaConsumer;
+            this.cursor = cursor;
         }
-        return values;
     }
 }
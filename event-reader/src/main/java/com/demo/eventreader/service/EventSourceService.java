@@ -3,6 +3,12 @@ package com.demo.eventreader.service;
 import com.demo.eventreader.model.EventSourceModel;
 import com.demo.eventreader.repository.EventSourceRepository;
 import com.demo.eventregistry.api.EventRegistryControllerApi;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import org.apache.commons.collections4.IterableUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,24 +17,53 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
+// Event -> topic mappings are cached: entries are refreshed in the background after "refresh-after-write" (the stale
+// topic being served meanwhile, and kept if the registry is down), unknown events are cached for "negative-ttl".
+// Hit/miss/load metrics are exposed as "cache.*{cache=event-source}"
 @Service
 public class EventSourceService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EventSourceService.class);
+    private static final String CACHE_NAME = "event-source";
 
     private final EventSourceRepository eventSourceRepository;
     private final EventRegistryControllerApi remoteEventRegistryApi;
     private final boolean remoteEventSourceEnabled;
+    private final LoadingCache<String, Optional<String>> sourceCache;
 
     public EventSourceService(EventSourceRepository eventSourceRepository,
                               EventRegistryControllerApi remoteEventRegistryApi,
-                              @Value("${event-source.remote.enabled}") boolean remoteEventSourceEnabled) {
+                              MeterRegistry meterRegistry,
+                              @Value("${event-source.remote.enabled}") boolean remoteEventSourceEnabled,
+                              @Value("${event-source.cache.max-size}") long maxSize,
+                              @Value("${event-source.cache.refresh-after-write}") Duration refreshAfterWrite,
+                              @Value("${event-source.cache.negative-ttl}") Duration negativeTtl) {
         this.eventSourceRepository = eventSourceRepository;
         this.remoteEventRegistryApi = remoteEventRegistryApi;
         this.remoteEventSourceEnabled = remoteEventSourceEnabled;
+        this.sourceCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new EventSourceExpiry(negativeTtl))
+                .refreshAfterWrite(refreshAfterWrite)
+                .recordStats()
+                .build(this::loadEventSource);
+        CaffeineCacheMetrics.monitor(meterRegistry, sourceCache, CACHE_NAME);
+    }
+
+    // The first reads do not wait for the registry: a failure here only leaves the cache cold
+    @PostConstruct
+    public void warmUp() {
+        try {
+            List<EventSourceModel> eventSources = getEventSources();
+            eventSources.forEach(source -> sourceCache.put(source.event(), Optional.of(source.topic())));
+            LOGGER.info("{} event sources loaded in cache", eventSources.size());
+        } catch (Exception e) {
+            LOGGER.warn("Error while warming event source cache: {}", e.getMessage());
+        }
     }
 
     public List<EventSourceModel> getEventSources() {
@@ -42,6 +77,22 @@ public class EventSourceService {
     }
 
     public Optional<String> getEventSource(String eventName) {
+        return sourceCache.get(eventName);
+    }
+
+    public EventSourceModel saveEventSource(String eventName, String topicName) {
+        if (remoteEventSourceEnabled) {
+            throw new UnsupportedOperationException("Remote source is enabled / Access to event source is read-only");
+        } else {
+            EventSourceModel saved = eventSourceRepository.save(new EventSourceModel(eventName, topicName));
+            sourceCache.put(eventName, Optional.of(topicName));
+            return saved;
+        }
+    }
+
+    // PRIVATE METHODS
+
+    private Optional<String> loadEventSource(String eventName) {
         if (remoteEventSourceEnabled) {
             try {
                 String topicName = remoteEventRegistryApi.getEventSource(eventName);
@@ -60,11 +111,30 @@ public class EventSourceService {
         }
     }
 
-    public EventSourceModel saveEventSource(String eventName, String topicName) {
-        if (remoteEventSourceEnabled) {
-            throw new UnsupportedOperationException("Remote source is enabled / Access to event source is read-only");
-        } else {
-            return eventSourceRepository.save(new EventSourceModel(eventName, topicName));
+    // PRIVATE CLASSES
+
+    // Known events never expire (only refreshed), unknown events expire after the negative TTL
+    private static class EventSourceExpiry implements Expiry<String, Optional<String>> {
+
+        private final long negativeTtlNanos;
+
+        private EventSourceExpiry(Duration negativeTtl) {
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String eventName, Optional<String> topicName, long currentTime) {
+            return topicName.isPresent() ? Long.MAX_VALUE : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String eventName, Optional<String> topicName, long currentTime, long currentDuration) {
+            return expireAfterCreate(eventName, topicName, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String eventName, Optional<String> topicName, long currentTime, long currentDuration) {
+            return currentDuration;
         }
     }
 }
@@ -0,0 +1,180 @@
+package com.demo.eventreader.service.avro;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Writes an Avro record straight to the Jackson generator, keeping the JSON types of its fields (numbers, booleans,
+// nulls, nested objects and arrays). The way to write each field is planned once per schema: the deserializer hands
+// the same Schema instance for a given schema ID, so the plan lookup is a plain map access.
+// Logical types use the same JSON representation as the one accepted by event-producer (ISO dates, decimal numbers).
+public class EventRecordJsonSerializer extends StdSerializer<GenericRecord> {
+
+    private static final Map<Schema, FieldWriter[]> RECORD_PLANS = new ConcurrentHashMap<>();
+
+    public EventRecordJsonSerializer() {
+        super(GenericRecord.class);
+    }
+
+    @Override
+    public void serialize(GenericRecord genericRecord, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        writeRecord(genericRecord, generator);
+    }
+
+    // PRIVATE METHODS
+
+    private static void writeRecord(GenericRecord genericRecord, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (FieldWriter fieldWriter : RECORD_PLANS.computeIfAbsent(genericRecord.getSchema(), EventRecordJsonSerializer::planRecord)) {
+            generator.writeFieldName(fieldWriter.name());
+            Object value = genericRecord.get(fieldWriter.pos());
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                fieldWriter.writer().write(value, generator);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static FieldWriter[] planRecord(Schema schema) {
+        List<Schema.Field> fields = schema.getFields();
+        FieldWriter[] plan = new FieldWriter[fields.size()];
+        for (int i = 0; i < plan.length; i++) {
+            Schema.Field field = fields.get(i);
+            plan[i] = new FieldWriter(new SerializedString(field.name()), field.pos(), planValue(field.schema()));
+        }
+        return plan;
+    }
+
+    private static ValueWriter planValue(Schema schema) {
+        LogicalType logicalType = schema.getLogicalType();
+        return switch (schema.getType()) {
+            case NULL -> (value, generator) -> generator.writeNull();
+            case BOOLEAN -> (value, generator) -> generator.writeBoolean((Boolean) value);
+            case INT -> {
+                if (logicalType instanceof LogicalTypes.Date) {
+                    yield (value, generator) -> generator.writeString(LocalDate.ofEpochDay((Integer) value).toString());
+                } else if (logicalType instanceof LogicalTypes.TimeMillis) {
+                    yield (value, generator) -> generator.writeString(LocalTime.ofNanoOfDay((Integer) value * 1_000_000L).toString());
+                }
+                yield (value, generator) -> generator.writeNumber((Integer) value);
+            }
+            case LONG -> {
+                if (logicalType instanceof LogicalTypes.TimestampMillis) {
+                    yield (value, generator) -> generator.writeString(Instant.ofEpochMilli((Long) value).toString());
+                } else if (logicalType instanceof LogicalTypes.TimestampMicros) {
+                    yield (value, generator) -> generator.writeString(Instant.EPOCH.plus((Long) value, ChronoUnit.MICROS).toString());
+                } else if (logicalType instanceof LogicalTypes.TimeMicros) {
+                    yield (value, generator) -> generator.writeString(LocalTime.ofNanoOfDay((Long) value * 1_000L).toString());
+                }
+                yield (value, generator) -> generator.writeNumber((Long) value);
+            }
+            case FLOAT -> (value, generator) -> generator.writeNumber((Float) value);
+            case DOUBLE -> (value, generator) -> generator.writeNumber((Double) value);
+            case STRING -> EventRecordJsonSerializer::writeString;
+            case ENUM -> (value, generator) -> generator.writeString(value.toString());
+            case BYTES -> {
+                if (logicalType instanceof LogicalTypes.Decimal decimal) {
+                    yield (value, generator) -> generator.writeNumber(toDecimal(toBytes((ByteBuffer) value), decimal));
+                }
+                yield (value, generator) -> generator.writeString(new String(toBytes((ByteBuffer) value), StandardCharsets.ISO_8859_1));
+            }
+            case FIXED -> {
+                if (logicalType instanceof LogicalTypes.Decimal decimal) {
+                    yield (value, generator) -> generator.writeNumber(toDecimal(((GenericFixed) value).bytes(), decimal));
+                }
+                yield (value, generator) -> generator.writeString(new String(((GenericFixed) value).bytes(), StandardCharsets.ISO_8859_1));
+            }
+            case ARRAY -> {
+                ValueWriter itemWriter = planValue(schema.getElementType());
+                yield (value, generator) -> {
+                    generator.writeStartArray();
+                    for (Object item : (Iterable<?>) value) {
+                        writeNullable(itemWriter, item, generator);
+                    }
+                    generator.writeEndArray();
+                };
+            }
+            case MAP -> {
+                ValueWriter entryWriter = planValue(schema.getValueType());
+                yield (value, generator) -> {
+                    generator.writeStartObject();
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                        generator.writeFieldName(entry.getKey().toString());
+                        writeNullable(entryWriter, entry.getValue(), generator);
+                    }
+                    generator.writeEndObject();
+                };
+            }
+            // Planned on first write: recursive schemas would loop otherwise
+            case RECORD -> (value, generator) -> writeRecord((GenericRecord) value, generator);
+            case UNION -> {
+                List<Schema> branches = schema.getTypes();
+                ValueWriter[] branchWriters = new ValueWriter[branches.size()];
+                for (int i = 0; i < branchWriters.length; i++) {
+                    branchWriters[i] = planValue(branches.get(i));
+                }
+                yield (value, generator) -> branchWriters[GenericData.get().resolveUnion(schema, value)].write(value, generator);
+            }
+        };
+    }
+
+    private static void writeNullable(ValueWriter writer, Object value, JsonGenerator generator) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else {
+            writer.write(value, generator);
+        }
+    }
+
+    // Avro strings are decoded as Utf8: their bytes are written as is, without building a String
+    private static void writeString(Object value, JsonGenerator generator) throws IOException {
+        if (value instanceof Utf8 utf8) {
+            generator.writeUTF8String(utf8.getBytes(), 0, utf8.getByteLength());
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private static byte[] toBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static BigDecimal toDecimal(byte[] unscaled, LogicalTypes.Decimal decimal) {
+        return new BigDecimal(new BigInteger(unscaled), decimal.getScale());
+    }
+
+    // PRIVATE CLASSES
+
+    private record FieldWriter(SerializableString name, int pos, ValueWriter writer) {}
+
+    @FunctionalInterface
+    private interface ValueWriter {
+        void write(Object value, JsonGenerator generator) throws IOException;
+    }
+}
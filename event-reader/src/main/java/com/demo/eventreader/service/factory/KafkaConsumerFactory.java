@@ -14,27 +14,45 @@ public class KafkaConsumerFactory {
 
     private final String bootstrapServers;
     private final String schemaRegistryUrl;
+    private final int maxPartitionFetchBytes;
 
     @Autowired
     public KafkaConsumerFactory(@Value("${kafka.bootstrap-servers}") String bootstrapServers,
-                                @Value("${kafka.schema-registry-url}") String schemaRegistryUrl) {
+                                @Value("${kafka.schema-registry-url}") String schemaRegistryUrl,
+                                @Value("${kafka.max-partition-fetch-bytes}") int maxPartitionFetchBytes) {
         this.bootstrapServers = bootstrapServers;
         this.schemaRegistryUrl = schemaRegistryUrl;
+        this.maxPartitionFetchBytes = maxPartitionFetchBytes;
     }
 
     public KafkaConsumer<String, GenericRecord> buildKafkaListener(String consumerGroupId) {
+        Properties properties = buildProperties();
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, consumerGroupId);
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"); // Means that we read the topic from the beginning at consumer group creation
+        return new KafkaConsumer<>(properties);
+    }
+
+    // Without consumer group: partitions are assigned and positioned by the caller, offsets are never committed
+    public KafkaConsumer<String, GenericRecord> buildKafkaReader() {
+        Properties properties = buildProperties();
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"); // A position already deleted by retention reads from the oldest event left, not from the end
+        return new KafkaConsumer<>(properties);
+    }
+
+    // PRIVATE METHODS
+
+    private Properties buildProperties() {
         Properties properties = new Properties();
         properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, "org.apache.kafka.common.serialization.StringDeserializer");
         properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, "io.confluent.kafka.serializers.KafkaAvroDeserializer");
-        properties.put(ConsumerConfig.GROUP_ID_CONFIG, consumerGroupId);
-        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest"); // Means that we read the topic from the beginning at consumer group creation
         properties.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false); // Topics shall exist on brokers
         properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, maxPartitionFetchBytes);
         properties.put("schema.registry.url", schemaRegistryUrl);
         properties.put("value.subject.name.strategy", "io.confluent.kafka.serializers.subject.RecordNameStrategy");
         properties.put("specific.avro.reader", "false"); // To pull and get GenericRecord and not SpecificRecord with typing (TO BE DEFINED if we use CloudEvents)
         properties.put("auto.register.schemas", "false"); // Schemas shall exist on registry
-        return new KafkaConsumer<>(properties);
+        return properties;
     }
 }
@@ -0,0 +1,77 @@
+package com.demo.eventreader.service.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// In-process index of timestamp -> offset checkpoints per partition, answering the "offsetsForTimes" lookups of the
+// time-travel reads it already knows about. A checkpoint states that the first offset with a timestamp >= T is "offset"
+// for any T in ]lowerTimestamp, timestamp]. Only broker lookups are recorded: their answer holds whatever the order of
+// the timestamps of a partition (unlike consumed records, whose CreateTime may go backwards).
+// The checkpoints of a partition are dropped "expire-after-write" after its first one, however often it is read, so
+// that retention never leaves checkpoints pointing to deleted offsets for long.
+@Service
+public class EventTimestampIndexService {
+
+    private final Cache<TopicPartition, NavigableMap<Long, Checkpoint>> partitionIndexes;
+    private final int maxCheckpointsPerPartition;
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired
+    public EventTimestampIndexService(MeterRegistry meterRegistry,
+                                      @Value("${timestamp-index.max-partitions}") long maxPartitions,
+                                      @Value("${timestamp-index.max-checkpoints-per-partition}") int maxCheckpointsPerPartition,
+                                      @Value("${timestamp-index.expire-after-write}") Duration expireAfterWrite) {
+        this.partitionIndexes = Caffeine.newBuilder()
+                .maximumSize(maxPartitions)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        this.maxCheckpointsPerPartition = maxCheckpointsPerPartition;
+        this.hits = meterRegistry.counter("event.reader.timestamp.index", "result", "hit");
+        this.misses = meterRegistry.counter("event.reader.timestamp.index", "result", "miss");
+    }
+
+    public OptionalLong lookup(TopicPartition topicPartition, long timestamp) {
+        NavigableMap<Long, Checkpoint> index = partitionIndexes.getIfPresent(topicPartition);
+        Map.Entry<Long, Checkpoint> ceiling = index != null ? index.ceilingEntry(timestamp) : null;
+        if (ceiling != null && ceiling.getValue().lowerTimestamp() < timestamp) {
+            hits.increment();
+            return OptionalLong.of(ceiling.getValue().offset());
+        }
+        misses.increment();
+        return OptionalLong.empty();
+    }
+
+    // Result of a broker lookup: "offset" (with "offsetTimestamp") is the first offset with a timestamp >= "timestamp"
+    public void recordLookup(TopicPartition topicPartition, long timestamp, long offset, long offsetTimestamp) {
+        record(topicPartition, offsetTimestamp, new Checkpoint(offset, timestamp - 1));
+    }
+
+    // PRIVATE METHODS
+
+    private void record(TopicPartition topicPartition, long timestamp, Checkpoint checkpoint) {
+        NavigableMap<Long, Checkpoint> index = partitionIndexes.get(topicPartition, tp -> new ConcurrentSkipListMap<>());
+        index.merge(timestamp, checkpoint, (existing, added) -> existing.offset() == added.offset()
+                ? new Checkpoint(existing.offset(), Math.min(existing.lowerTimestamp(), added.lowerTimestamp()))
+                : added); // Offsets moved (topic recreated): the latest information wins
+        while (index.size() > maxCheckpointsPerPartition) {
+            index.pollFirstEntry(); // Oldest timestamps are the least likely to be read again
+        }
+    }
+
+    // PRIVATE CLASSES
+
+    private record Checkpoint(long offset, long lowerTimestamp) {}
+}
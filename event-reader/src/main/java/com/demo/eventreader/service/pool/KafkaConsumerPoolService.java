@@ -0,0 +1,154 @@
+package com.demo.eventreader.service.pool;
+
+import com.demo.eventreader.service.factory.KafkaConsumerFactory;
+import jakarta.annotation.PreDestroy;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.pool2.BaseKeyedPooledObjectFactory;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
+import org.apache.commons.pool2.impl.GenericKeyedObjectPoolConfig;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+// Keyed pool of warm Kafka consumers: a consumer stays in its group (and keeps its fetch position) between two reads
+// of the same client, so that paging does not pay a group join and an offset fetch on every call.
+// A single consumer per group, concurrent reads of a same client waiting for it.
+// Cursor reads use a separate pool of consumers without group, shared by all clients.
+@Service
+public class KafkaConsumerPoolService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KafkaConsumerPoolService.class);
+
+    private final GenericKeyedObjectPool<String, KafkaConsumer<String, GenericRecord>> consumerPool;
+    private final GenericObjectPool<KafkaConsumer<String, GenericRecord>> readerPool;
+
+    @Autowired
+    public KafkaConsumerPoolService(KafkaConsumerFactory consumerFactory,
+                                    @Value("${consumer-pool.max-total}") int maxTotal,
+                                    @Value("${consumer-pool.max-readers}") int maxReaders,
+                                    @Value("${consumer-pool.borrow-timeout}") Duration borrowTimeout,
+                                    @Value("${consumer-pool.min-evictable-idle-time}") Duration minEvictableIdleTime,
+                                    @Value("${consumer-pool.eviction-run-interval}") Duration evictionRunInterval) {
+        GenericKeyedObjectPoolConfig<KafkaConsumer<String, GenericRecord>> poolConfig = new GenericKeyedObjectPoolConfig<>();
+        poolConfig.setMaxTotal(maxTotal);
+        poolConfig.setMaxTotalPerKey(1);
+        poolConfig.setMaxIdlePerKey(1);
+        poolConfig.setMaxWait(borrowTimeout);
+        poolConfig.setMinEvictableIdleDuration(minEvictableIdleTime);
+        poolConfig.setTimeBetweenEvictionRuns(evictionRunInterval);
+        poolConfig.setNumTestsPerEvictionRun(-1); // Whole pool checked on each run
+        this.consumerPool = new GenericKeyedObjectPool<>(new KafkaConsumerPooledFactory(consumerFactory), poolConfig);
+
+        GenericObjectPoolConfig<KafkaConsumer<String, GenericRecord>> readerPoolConfig = new GenericObjectPoolConfig<>();
+        readerPoolConfig.setMaxTotal(maxReaders);
+        readerPoolConfig.setMaxIdle(maxReaders);
+        readerPoolConfig.setMaxWait(borrowTimeout);
+        readerPoolConfig.setMinEvictableIdleDuration(minEvictableIdleTime);
+        readerPoolConfig.setTimeBetweenEvictionRuns(evictionRunInterval);
+        readerPoolConfig.setNumTestsPerEvictionRun(-1);
+        this.readerPool = new GenericObjectPool<>(new KafkaReaderPooledFactory(consumerFactory), readerPoolConfig);
+    }
+
+    public KafkaConsumer<String, GenericRecord> borrow(String consumerGroupId) throws Exception {
+        return consumerPool.borrowObject(consumerGroupId);
+    }
+
+    public void release(String consumerGroupId, KafkaConsumer<String, GenericRecord> kafkaConsumer) {
+        consumerPool.returnObject(consumerGroupId, kafkaConsumer);
+    }
+
+    // For a consumer in an unknown state after an error: it is closed instead of being reused
+    public void invalidate(String consumerGroupId, KafkaConsumer<String, GenericRecord> kafkaConsumer) {
+        try {
+            consumerPool.invalidateObject(consumerGroupId, kafkaConsumer);
+        } catch (Exception e) {
+            LOGGER.error("Error while invalidating consumer of '{}'", consumerGroupId, e);
+        }
+    }
+
+    public KafkaConsumer<String, GenericRecord> borrowReader() throws Exception {
+        return readerPool.borrowObject();
+    }
+
+    public void releaseReader(KafkaConsumer<String, GenericRecord> kafkaReader) {
+        readerPool.returnObject(kafkaReader);
+    }
+
+    public void invalidateReader(KafkaConsumer<String, GenericRecord> kafkaReader) {
+        try {
+            readerPool.invalidateObject(kafkaReader);
+        } catch (Exception e) {
+            LOGGER.error("Error while invalidating reader", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        consumerPool.close();
+        readerPool.close();
+    }
+
+    // PRIVATE CLASSES
+
+    private static class KafkaConsumerPooledFactory extends BaseKeyedPooledObjectFactory<String, KafkaConsumer<String, GenericRecord>> {
+
+        private final KafkaConsumerFactory consumerFactory;
+
+        private KafkaConsumerPooledFactory(KafkaConsumerFactory consumerFactory) {
+            this.consumerFactory = consumerFactory;
+        }
+
+        @Override
+        public KafkaConsumer<String, GenericRecord> create(String consumerGroupId) {
+            LOGGER.info("Creating consumer for '{}'", consumerGroupId);
+            return consumerFactory.buildKafkaListener(consumerGroupId);
+        }
+
+        @Override
+        public PooledObject<KafkaConsumer<String, GenericRecord>> wrap(KafkaConsumer<String, GenericRecord> kafkaConsumer) {
+            return new DefaultPooledObject<>(kafkaConsumer);
+        }
+
+        @Override
+        public void destroyObject(String consumerGroupId, PooledObject<KafkaConsumer<String, GenericRecord>> pooledObject) {
+            LOGGER.info("Closing consumer of '{}'", consumerGroupId);
+            pooledObject.getObject().close();
+        }
+    }
+
+    private static class KafkaReaderPooledFactory extends BasePooledObjectFactory<KafkaConsumer<String, GenericRecord>> {
+
+        private final KafkaConsumerFactory consumerFactory;
+
+        private KafkaReaderPooledFactory(KafkaConsumerFactory consumerFactory) {
+            this.consumerFactory = consumerFactory;
+        }
+
+        @Override
+        public KafkaConsumer<String, GenericRecord> create() {
+            LOGGER.info("Creating reader");
+            return consumerFactory.buildKafkaReader();
+        }
+
+        @Override
+        public PooledObject<KafkaConsumer<String, GenericRecord>> wrap(KafkaConsumer<String, GenericRecord> kafkaReader) {
+            return new DefaultPooledObject<>(kafkaReader);
+        }
+
+        @Override
+        public void destroyObject(PooledObject<KafkaConsumer<String, GenericRecord>> pooledObject) {
+            LOGGER.info("Closing reader");
+            pooledObject.getObject().close();
+        }
+    }
+}
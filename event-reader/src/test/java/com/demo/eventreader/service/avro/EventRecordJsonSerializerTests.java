@@ -0,0 +1,58 @@
+package com.demo.eventreader.service.avro;
+
+import com.demo.eventreader.model.EventPayloadModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventRecordJsonSerializerTests {
+
+	private static final Schema SCHEMA = new Schema.Parser().parse("""
+			{
+			  "type": "record", "name": "TestPayload", "namespace": "com.demo.schema",
+			  "fields": [
+			    {"name": "id", "type": "int"},
+			    {"name": "data", "type": "string"},
+			    {"name": "valid", "type": "boolean"},
+			    {"name": "comment", "type": ["null", "string"]},
+			    {"name": "tags", "type": {"type": "array", "items": "string"}},
+			    {"name": "counters", "type": {"type": "map", "values": "long"}},
+			    {"name": "author", "type": ["null", {"type": "record", "name": "Author", "fields": [{"name": "name", "type": "string"}]}]},
+			    {"name": "createdAt", "type": {"type": "long", "logicalType": "timestamp-millis"}},
+			    {"name": "amount", "type": {"type": "bytes", "logicalType": "decimal", "precision": 10, "scale": 2}}
+			  ]
+			}""");
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void keepsFieldTypes() throws JsonProcessingException {
+		GenericRecord author = new GenericData.Record(SCHEMA.getField("author").schema().getTypes().get(1));
+		author.put("name", new Utf8("toto"));
+		GenericRecord record = new GenericData.Record(SCHEMA);
+		record.put("id", 1);
+		record.put("data", new Utf8("blablabla"));
+		record.put("valid", true);
+		record.put("comment", null);
+		record.put("tags", List.of(new Utf8("a"), new Utf8("b")));
+		record.put("counters", Map.of(new Utf8("hits"), 3L));
+		record.put("author", author);
+		record.put("createdAt", 1714557600000L);
+		record.put("amount", ByteBuffer.wrap(BigInteger.valueOf(12345).toByteArray()));
+
+		assertThat(objectMapper.writeValueAsString(new EventPayloadModel(record))).isEqualTo("""
+				{"fields":{"id":1,"data":"blablabla","valid":true,"comment":null,"tags":["a","b"],"counters":{"hits":3},\
+				"author":{"name":"toto"},"createdAt":"2024-05-01T10:00:00Z","amount":123.45}}""");
+	}
+}
@@ -0,0 +1,28 @@
+// Load test of the event-backpressure-dispatcher "/event" endpoint (Redis reads and one policy server call per event).
+// Run it once against each execution mode and compare the summaries (http_reqs rate, p(95)/p(99) durations):
+//   k6 run -e BASE_URL=http://localhost:8083 event-backpressure-dispatcher-event.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8083';
+const CONSUMERS = ['toto', 'titi'];
+
+export const options = {
+    scenarios: {
+        readers: {
+            executor: 'constant-arrival-rate',
+            rate: Number(__ENV.RATE || 200),
+            timeUnit: '1s',
+            duration: '3m',
+            preAllocatedVUs: 50,
+            maxVUs: 500,
+        },
+    },
+    summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+};
+
+export default function () {
+    const consumer = CONSUMERS[__ITER % CONSUMERS.length];
+    const response = http.get(`${BASE_URL}/event?consumer=${consumer}&count=50`);
+    check(response, { 'status is 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,29 @@
+// Feeds Kafka through event-producer at a constant rate, to load the consuming modules (event-consumer webhooks,
+// event-backpressure-sink XADD). Their throughput and tail latency are then read from their metrics endpoints
+// (event.webhook.latency, event.consumer.pending, event.consumer.failures) for each execution mode:
+//   k6 run -e BASE_URL=http://localhost:8080 -e EVENT=test -e RATE=2000 event-producer-feed.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const EVENT = __ENV.EVENT || 'test';
+
+export const options = {
+    scenarios: {
+        producers: {
+            executor: 'constant-arrival-rate',
+            rate: Number(__ENV.RATE || 2000),
+            timeUnit: '1s',
+            duration: '3m',
+            preAllocatedVUs: 100,
+            maxVUs: 1000,
+        },
+    },
+    summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+};
+
+export default function () {
+    const body = JSON.stringify({ id: __ITER, data: `load-${__VU}-${__ITER}` });
+    const response = http.post(`${BASE_URL}/event/${EVENT}`, body, { headers: { 'Content-Type': 'application/json' } });
+    check(response, { 'status is 2xx': (r) => r.status >= 200 && r.status < 300 });
+}
@@ -0,0 +1,29 @@
+// Load test of the event-reader "/read" endpoint (blocking Kafka reads).
+// Run it once against each execution mode and compare the summaries (http_reqs rate, p(95)/p(99) durations):
+//   k6 run -e BASE_URL=http://localhost:8082 -e EVENT=test event-reader-read.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8082';
+const EVENT = __ENV.EVENT || 'test';
+
+export const options = {
+    scenarios: {
+        readers: {
+            executor: 'ramping-vus',
+            startVUs: 1,
+            stages: [
+                { duration: '30s', target: 50 },
+                { duration: '2m', target: 200 },
+                { duration: '30s', target: 0 },
+            ],
+        },
+    },
+    summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+};
+
+export default function () {
+    const body = JSON.stringify({ clientName: `load-${__VU}`, eventName: EVENT, count: 100 });
+    const response = http.request('GET', `${BASE_URL}/read`, body, { headers: { 'Content-Type': 'application/json' } });
+    check(response, { 'status is 200': (r) => r.status === 200 });
+}